@@ -509,6 +509,19 @@ def _get_path_to_test_image():
     mx.abort('Unable to locate test image.')
 
 
+def _get_preinitialized_image_build_args():
+    """Pre-initializes the context with an image if TRUFFLESQUEAK_PREINIT_IMAGE is set."""
+    image_path = mx.get_env('TRUFFLESQUEAK_PREINIT_IMAGE')
+    if not image_path:
+        return []
+    if not os.path.isfile(image_path):
+        mx.abort('Unable to locate image to pre-initialize: %s' % image_path)
+    return [
+        '-Dpolyglot.engine.PreinitializeContexts=%s' % LANGUAGE_ID,
+        '-Dpolyglot.%s.image-path=%s' % (LANGUAGE_ID, os.path.abspath(image_path)),
+    ]
+
+
 def _enable_local_compression():
     def patched_init(self, *args, **kw_args):
         self._local_compress = kw_args.pop('localCompress', True) # Flip default to `True`
@@ -548,7 +561,7 @@ mx_sdk.register_graalvm_component(mx_sdk.GraalVmLanguage(
             build_args=[
                 # '--pgo-instrument',  # (uncomment to enable profiling)
                 # '--pgo',  # (uncomment to recompile with profiling info)
-            ],
+            ] + _get_preinitialized_image_build_args(),
         )
     ],
     post_install_msg=(None if not _SVM else "\nNOTES:\n---------------\n" +
@@ -6,9 +6,21 @@
 package de.hpi.swa.trufflesqueak.shared;
 
 public final class SqueakLanguageOptions {
+    public static final String BITBLT_PARALLEL_THRESHOLD = "bitblt-parallel-threshold";
+    public static final String BITBLT_PARALLEL_THRESHOLD_HELP = "Minimum number of words a blit has to touch to be split into row bands copied in parallel (0 disables)";
     public static final String CODE_FLAG = "--code";
     public static final String CODE_FLAG_SHORT = "-c";
     public static final String CODE_HELP = "Smalltalk code to be executed without display";
+    public static final String DISPLAY_FRAME_INTERVAL = "display-frame-interval";
+    public static final String DISPLAY_FRAME_INTERVAL_HELP = "Minimum number of milliseconds between display updates, damage is merged in between (0 paints immediately)";
+    public static final String DISPLAY_STREAM = "display-stream";
+    public static final String DISPLAY_STREAM_HELP = "Stream the display of a headless image as compressed tile deltas to 'file:<path>' or to a viewer at 'tcp:<port>' on localhost";
+    public static final String EVENT_DRIVEN_INTERRUPTS = "event-driven-interrupts";
+    public static final String EVENT_DRIVEN_INTERRUPTS_HELP = "Trigger interrupts on events and at the exact timer wakeup instead of polling every 20ms";
+    public static final String FILE_READ_AHEAD = "file-read-ahead";
+    public static final String FILE_READ_AHEAD_HELP = "Number of bytes read ahead for each open file (0 disables read-ahead)";
+    public static final String FILE_WRITE_BEHIND = "file-write-behind";
+    public static final String FILE_WRITE_BEHIND_HELP = "Number of bytes buffered before writing to a file, flushed on primitiveFileFlush and close (0 writes through)";
     public static final String HEADLESS = "headless";
     public static final String HEADLESS_FLAG = "--" + HEADLESS;
     public static final String HEADLESS_HELP = "Run without a display";
@@ -18,11 +30,15 @@ public final class SqueakLanguageOptions {
     public static final String IMAGE_PATH = "image-path";
     public static final String IMAGE_PATH_FLAG = "--" + IMAGE_PATH;
     public static final String IMAGE_PATH_HELP = "Path to image";
+    public static final String INSTANCE_REGISTRY = "instance-registry";
+    public static final String INSTANCE_REGISTRY_HELP = "Track instances of non-special classes weakly to answer allInstances without heap walks";
     public static final String INTERCEPT_MESSAGES = "intercept-messages";
     public static final String INTERCEPT_MESSAGES_HELP = "Comma-separated list of messages to intercept with an instrument";
     public static final String INTERRUPTS = "disable-interrupts";
     public static final String INTERRUPTS_FLAG = "--" + INTERRUPTS;
     public static final String INTERRUPTS_HELP = "Disable interrupt handler";
+    public static final String METHOD_CACHE_SIZE = "method-cache-size";
+    public static final String METHOD_CACHE_SIZE_HELP = "Number of entries in the global method cache (rounded up to a power of two)";
     public static final String LOG_HANDLER_FLAG = "--log-handler";
     public static final String LOG_HANDLER_HELP = "Enable log handler (supported modes are 'mapped', 'file', 'err', 'out')";
     public static final String PRINT_IMAGE_PATH_FLAG = "--print-image-path";
@@ -32,6 +48,10 @@ public final class SqueakLanguageOptions {
     public static final String QUIET_HELP = "Operate quietly";
     public static final String SIGNAL_INPUT_SEMAPHORE = "signal-input-semaphore";
     public static final String SIGNAL_INPUT_SEMAPHORE_HELP = "Signal the input semaphore";
+    public static final String SSL_SESSION_CACHE_SIZE = "ssl-session-cache-size";
+    public static final String SSL_SESSION_CACHE_SIZE_HELP = "Maximum number of TLS sessions cached for resumption, per SqueakSSL certificate configuration and side (0 removes the limit)";
+    public static final String SSL_SESSION_TIMEOUT = "ssl-session-timeout";
+    public static final String SSL_SESSION_TIMEOUT_HELP = "Number of seconds a cached TLS session can be resumed (0 removes the limit)";
     public static final String STACK_DEPTH_PROTECTION = "stack-depth-protection";
     public static final String STACK_DEPTH_PROTECTION_FLAG = "--" + STACK_DEPTH_PROTECTION;
     public static final String STACK_DEPTH_PROTECTION_HELP = "Enable stack depth protection";
@@ -6,16 +6,26 @@
 package de.hpi.swa.trufflesqueak.test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
 import org.junit.Test;
 
 import de.hpi.swa.trufflesqueak.image.SqueakImageChunk;
+import de.hpi.swa.trufflesqueak.model.ClassObject;
 import de.hpi.swa.trufflesqueak.model.CompiledCodeObject;
+import de.hpi.swa.trufflesqueak.model.EmptyObject;
 import de.hpi.swa.trufflesqueak.model.FloatObject;
+import de.hpi.swa.trufflesqueak.model.NativeObject;
 import de.hpi.swa.trufflesqueak.model.NilObject;
 import de.hpi.swa.trufflesqueak.model.layout.ObjectLayouts.CONTEXT;
 import de.hpi.swa.trufflesqueak.nodes.bytecodes.SqueakBytecodeV3PlusClosuresDecoder;
+import de.hpi.swa.trufflesqueak.util.ObjectGraphUtils;
 import de.hpi.swa.trufflesqueak.util.UnsafeUtils;
 
 @SuppressWarnings("static-method")
@@ -173,6 +183,82 @@ public final class SqueakMiscellaneousTest extends AbstractSqueakTestCaseWithDum
         assertTrue(nan instanceof FloatObject && ((FloatObject) nan).isNaN());
     }
 
+    @Test
+    public void testMethodCache() {
+        final NativeObject selector = image.asByteString("someSelector");
+        final NativeObject otherSelector = image.asByteString("someOtherSelector");
+        final ClassObject[] classes = new ClassObject[16];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new ClassObject(image);
+            image.findMethodCacheEntry(classes[i], selector).setResult(i);
+            image.findMethodCacheEntry(classes[i], otherSelector).setResult(-i);
+        }
+        for (int i = 0; i < classes.length; i++) {
+            assertEquals(i, image.findMethodCacheEntry(classes[i], selector).getResult());
+        }
+        image.flushMethodCacheForSelector(selector);
+        for (int i = 0; i < classes.length; i++) {
+            assertNull(image.findMethodCacheEntry(classes[i], selector).getResult());
+            assertEquals(-i, image.findMethodCacheEntry(classes[i], otherSelector).getResult());
+        }
+        image.flushMethodCache();
+        assertNull(image.findMethodCacheEntry(classes[0], otherSelector).getResult());
+    }
+
+    @Test
+    public void testInstanceRegistry() {
+        final ClassObject classA = new ClassObject(image);
+        final ClassObject classB = new ClassObject(image);
+        classA.enableInstanceRegistry();
+        final EmptyObject[] instances = new EmptyObject[3];
+        for (int i = 0; i < instances.length; i++) {
+            instances[i] = new EmptyObject(image, classA);
+            classA.registerNewInstance(instances[i]);
+        }
+        assertEquals(3, ObjectGraphUtils.allInstancesOf(image, classA).length);
+        instances[0].setSqueakClass(classB);
+        assertEquals(2, ObjectGraphUtils.allInstancesOf(image, classA).length);
+        instances[1].setSqueakClass(classB);
+        instances[1].setSqueakClass(classA);
+        instances[0].setSqueakClass(classA);
+        assertEquals(3, ObjectGraphUtils.allInstancesOf(image, classA).length);
+        classA.getInstanceRegistry().removeAll(Collections.singleton(instances[2]));
+        assertEquals(2, ObjectGraphUtils.allInstancesOf(image, classA).length);
+        assertTrue(ObjectGraphUtils.someInstanceOf(image, classA) instanceof EmptyObject);
+    }
+
+    @Test
+    public void testParallelAllInstancesOfMatchesSequentialWalk() {
+        final ClassObject classA = new ClassObject(image);
+        final ClassObject classB = new ClassObject(image);
+        for (final ClassObject classObject : new ClassObject[]{classA, classB}) {
+            classObject.fillin(SqueakImageChunk.createDummyChunk(image, new Object[]{null, null, 0L, null, null}));
+        }
+        /* Enough objects for the parallel trace to split its pending work. */
+        final Object[] objects = new Object[4096];
+        for (int i = 0; i < objects.length; i++) {
+            objects[i] = new EmptyObject(image, i % 3 == 0 ? classA : classB);
+        }
+        final Object[] specialObjects = image.specialObjectsArray.getObjectStorage();
+        final int rootIndex = specialObjects.length - 1;
+        specialObjects[rootIndex] = image.asArrayOfObjects(objects);
+        try {
+            ObjectGraphUtils.setForceParallelTracing(true);
+            final Object[] parallel = ObjectGraphUtils.allInstancesOf(image, classA);
+            ObjectGraphUtils.setForceParallelTracing(false);
+            ObjectGraphUtils.allInstances(image); // Shrinks the last seen heap below the threshold.
+            final Object[] sequential = ObjectGraphUtils.allInstancesOf(image, classA);
+            assertEquals((objects.length + 2) / 3, sequential.length);
+            assertEquals(sequential.length, parallel.length);
+            final Set<Object> expected = Collections.newSetFromMap(new IdentityHashMap<>());
+            expected.addAll(Arrays.asList(sequential));
+            assertTrue(expected.containsAll(Arrays.asList(parallel)));
+        } finally {
+            ObjectGraphUtils.setForceParallelTracing(false);
+            specialObjects[rootIndex] = null;
+        }
+    }
+
     private static SqueakImageChunk newFloatChunk(final byte[] data) {
         final SqueakImageChunk chunk = new SqueakImageChunk(
                         null,
@@ -5,22 +5,47 @@
  */
 package de.hpi.swa.trufflesqueak.test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 import org.junit.Test;
 
+import com.oracle.truffle.api.dsl.NodeFactory;
+
+import de.hpi.swa.trufflesqueak.exceptions.PrimitiveExceptions.PrimitiveFailed;
+import de.hpi.swa.trufflesqueak.image.SqueakImageChunk;
 import de.hpi.swa.trufflesqueak.interop.WrapToSqueakNode;
 import de.hpi.swa.trufflesqueak.model.AbstractSqueakObject;
 import de.hpi.swa.trufflesqueak.model.ArrayObject;
 import de.hpi.swa.trufflesqueak.model.BooleanObject;
+import de.hpi.swa.trufflesqueak.model.ClassObject;
 import de.hpi.swa.trufflesqueak.model.LargeIntegerObject;
+import de.hpi.swa.trufflesqueak.model.NativeObject;
 import de.hpi.swa.trufflesqueak.model.NilObject;
+import de.hpi.swa.trufflesqueak.model.PointersObject;
+import de.hpi.swa.trufflesqueak.nodes.accessing.SqueakObjectNewNode;
+import de.hpi.swa.trufflesqueak.nodes.plugins.FilePluginFactory;
+import de.hpi.swa.trufflesqueak.nodes.plugins.Zip;
+import de.hpi.swa.trufflesqueak.nodes.plugins.ZipPluginFactory;
+import de.hpi.swa.trufflesqueak.nodes.primitives.AbstractPrimitiveNode;
+import de.hpi.swa.trufflesqueak.nodes.primitives.SqueakPrimitive;
 
 public final class SqueakPrimitiveTest extends AbstractSqueakTestCaseWithDummyImage {
     @Test
@@ -77,4 +102,279 @@ public final class SqueakPrimitiveTest extends AbstractSqueakTestCaseWithDummyIm
         assertEquals(wrapNode.executeWrap(Long.MAX_VALUE),
                         runBinaryPrimitive(22, wrapNode.executeWrap(new LargeIntegerObject(image, BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE))), wrapNode.executeWrap(1L)));
     }
+
+    @Test
+    public void testLargeIntegerDigitByDigit() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            final BigInteger magnitude = new BigInteger(1 + random.nextInt(200), random);
+            final BigInteger value = random.nextBoolean() ? magnitude : magnitude.negate();
+            if (value.signum() == 0) {
+                continue;
+            }
+            final byte[] digits = toDigits(magnitude);
+            final int size = digits.length + random.nextInt(3);
+            final LargeIntegerObject object = new LargeIntegerObject(image, value.signum() > 0 ? image.largePositiveIntegerClass : image.largeNegativeIntegerClass, size);
+            final boolean isAscending = random.nextBoolean();
+            for (int j = 0; j < digits.length; j++) {
+                final int index = isAscending ? j : digits.length - 1 - j;
+                object.setNativeAt0(index, digits[index] & 0xFF);
+            }
+            assertLargeIntegerEquals(value, object);
+            assertEquals(size, object.size());
+            for (int j = 0; j < size; j++) {
+                assertEquals(j < digits.length ? digits[j] & 0xFF : 0L, object.getNativeAt0(j));
+            }
+        }
+    }
+
+    @Test
+    public void testLargeIntegerNegativePowersOfTwo() {
+        for (int k = 60; k <= 140; k++) {
+            final BigInteger value = BigInteger.ONE.shiftLeft(k).negate();
+            final LargeIntegerObject fromBigInteger = new LargeIntegerObject(image, value);
+            assertLargeIntegerEquals(value, fromBigInteger);
+            assertEquals(k / 8 + 1, fromBigInteger.size());
+            final LargeIntegerObject fromDigits = new LargeIntegerObject(image, image.largeNegativeIntegerClass, toDigits(value.negate()));
+            assertLargeIntegerEquals(value, fromDigits);
+            /* The same magnitude is one bit longer when positive. */
+            assertEquals(k + 1, new LargeIntegerObject(image, image.largePositiveIntegerClass, toDigits(value.negate())).bitLength());
+        }
+        assertEquals(Long.MIN_VALUE, new LargeIntegerObject(image, image.largeNegativeIntegerClass, toDigits(BigInteger.ONE.shiftLeft(63))).reduceIfPossible());
+    }
+
+    @Test
+    public void testLargeIntegerReplaceInternalValue() {
+        final BigInteger positive = BigInteger.ONE.shiftLeft(100).add(BigInteger.valueOf(12345));
+        final BigInteger negative = BigInteger.ONE.shiftLeft(100).negate();
+        /* The receiver keeps its sign and takes over the magnitude, from cached or from digits. */
+        final LargeIntegerObject positiveObject = new LargeIntegerObject(image, positive);
+        positiveObject.replaceInternalValue(new LargeIntegerObject(image, negative));
+        assertLargeIntegerEquals(negative.negate(), positiveObject);
+        positiveObject.replaceInternalValue(new LargeIntegerObject(image, image.largeNegativeIntegerClass, toDigits(positive)));
+        assertLargeIntegerEquals(positive, positiveObject);
+
+        final LargeIntegerObject negativeObject = new LargeIntegerObject(image, positive.negate());
+        negativeObject.replaceInternalValue(new LargeIntegerObject(image, negative.negate()));
+        assertLargeIntegerEquals(negative, negativeObject);
+        negativeObject.replaceInternalValue(new LargeIntegerObject(image, image.largePositiveIntegerClass, toDigits(positive)));
+        assertLargeIntegerEquals(positive.negate(), negativeObject);
+        negativeObject.replaceInternalValue(new LargeIntegerObject(image, image.largePositiveIntegerClass, toDigits(negative.negate())));
+        assertLargeIntegerEquals(negative, negativeObject);
+    }
+
+    @Test
+    public void testLargeIntegerReduceAfterShrinkingDigits() {
+        for (final BigInteger sign : new BigInteger[]{BigInteger.ONE, BigInteger.ONE.negate()}) {
+            final BigInteger value = BigInteger.ONE.shiftLeft(120).add(BigInteger.ONE.shiftLeft(80)).add(BigInteger.valueOf(0x1234)).multiply(sign);
+            final LargeIntegerObject object = new LargeIntegerObject(image, value);
+            assertEquals(16, object.size());
+            object.setNativeAt0(15, 0);
+            final BigInteger shrunk = BigInteger.ONE.shiftLeft(80).add(BigInteger.valueOf(0x1234)).multiply(sign);
+            assertLargeIntegerEquals(shrunk, object);
+            assertSame(object, object.reduceIfPossible());
+            assertEquals(11, object.size());
+            assertLargeIntegerEquals(shrunk, object);
+            object.setNativeAt0(10, 0);
+            assertEquals(0x1234 * sign.longValue(), object.reduceIfPossible());
+        }
+    }
+
+    private static void assertLargeIntegerEquals(final BigInteger expected, final LargeIntegerObject actual) {
+        assertEquals(expected, actual.getBigInteger());
+        assertEquals(expected.bitLength(), actual.bitLength());
+        assertEquals(expected.longValue(), actual.longValue());
+        assertEquals(expected.bitLength() < Long.SIZE, actual.fitsIntoLong());
+        assertArrayEquals(toDigits(expected.abs()), actual.getBytes());
+    }
+
+    /* Little-endian digits of a non-negative value, without leading zeros. */
+    private static byte[] toDigits(final BigInteger magnitude) {
+        final byte[] bigEndian = magnitude.toByteArray();
+        final int offset = bigEndian[0] == 0 ? 1 : 0;
+        final byte[] digits = new byte[bigEndian.length - offset];
+        for (int i = 0; i < digits.length; i++) {
+            digits[i] = bigEndian[bigEndian.length - 1 - i];
+        }
+        return digits;
+    }
+
+    @Test
+    public void testZipCompressBytesRoundTrip() {
+        final byte[] data = createCompressibleBytes();
+        for (long format = 0; format <= 2; format++) {
+            final NativeObject compressed = (NativeObject) runZipPrimitive("primitiveCompressBytes", NilObject.SINGLETON, image.asByteArray(data), format, -1L);
+            assertTrue(compressed.getByteLength() < data.length);
+            final NativeObject decompressed = (NativeObject) runZipPrimitive("primitiveDecompressBytes", NilObject.SINGLETON, compressed, format);
+            assertArrayEquals(data, decompressed.getByteStorage());
+        }
+    }
+
+    @Test
+    public void testZipCompressFileRegionRoundTrip() throws IOException {
+        final byte[] data = createCompressibleBytes();
+        final int offset = 100;
+        final byte[] sourceBytes = new byte[offset + data.length + 100];
+        System.arraycopy(data, 0, sourceBytes, offset, data.length);
+        final Path sourcePath = Files.createTempFile("source", ".bin");
+        final Path compressedPath = Files.createTempFile("compressed", ".bin");
+        final Path decompressedPath = Files.createTempFile("decompressed", ".bin");
+        try {
+            Files.write(sourcePath, sourceBytes);
+            for (long format = 0; format <= 2; format++) {
+                try (FileChannel source = FileChannel.open(sourcePath, StandardOpenOption.READ);
+                                FileChannel compressed = FileChannel.open(compressedPath, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                                FileChannel decompressed = FileChannel.open(decompressedPath, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    source.position(7);
+                    final PointersObject sourceHandle = PointersObject.newHandleWithHiddenObject(image, source);
+                    final PointersObject compressedHandle = PointersObject.newHandleWithHiddenObject(image, compressed);
+                    final PointersObject decompressedHandle = PointersObject.newHandleWithHiddenObject(image, decompressed);
+                    final long numCompressed = (long) runZipPrimitive("primitiveCompressFileRegion", NilObject.SINGLETON, sourceHandle, (long) offset, (long) data.length, compressedHandle,
+                                    format, 9L);
+                    assertEquals(compressed.size(), numCompressed);
+                    assertEquals(7, source.position());
+                    final long numDecompressed = (long) runZipPrimitive("primitiveDecompressFileRegion", NilObject.SINGLETON, compressedHandle, 0L, numCompressed, decompressedHandle, format);
+                    assertEquals(data.length, numDecompressed);
+                    assertEquals(numCompressed, compressed.position());
+                    final ByteBuffer result = ByteBuffer.allocate(data.length);
+                    decompressed.read(result, 0);
+                    assertArrayEquals(data, result.array());
+                    try {
+                        runZipPrimitive("primitiveCompressFileRegion", NilObject.SINGLETON, sourceHandle, 0L, 10L, sourceHandle, format, 9L);
+                        fail("Compressing a file region into the same file should fail");
+                    } catch (final PrimitiveFailed e) {
+                        assertEquals(7, source.position());
+                    }
+                }
+            }
+        } finally {
+            Files.delete(sourcePath);
+            Files.delete(compressedPath);
+            Files.delete(decompressedPath);
+        }
+    }
+
+    @Test
+    public void testZipDecompressTruncatedBytesFails() {
+        final byte[] data = createCompressibleBytes();
+        for (long format = 0; format <= 2; format++) {
+            final byte[] compressed = ((NativeObject) runZipPrimitive("primitiveCompressBytes", NilObject.SINGLETON, image.asByteArray(data), format, -1L)).getByteStorage();
+            for (final int length : new int[]{0, compressed.length / 2, compressed.length - 1}) {
+                try {
+                    runZipPrimitive("primitiveDecompressBytes", NilObject.SINGLETON, image.asByteArray(Arrays.copyOf(compressed, length)), format);
+                    fail("Decompressing " + length + " of " + compressed.length + " bytes in format " + format + " should fail");
+                } catch (final PrimitiveFailed e) {
+                    // expected
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testZipChecksumsMatchByteWiseUpdates() {
+        final Random random = new Random(42);
+        final byte[] bytes = new byte[70000];
+        random.nextBytes(bytes);
+        final NativeObject collection = image.asByteArray(bytes);
+        final long[] seeds = {0L, 1L, 0xFFFFFFFFL, 0xFFF0FFF0L, random.nextInt() & 0xFFFFFFFFL, random.nextInt() & 0xFFFFFFFFL};
+        final int[] lengths = {1, 2, 63, 64, 65, 66, 67, 100, 1000, 5552, 5553, 65521, 65522, bytes.length - 3};
+        for (final long seed : seeds) {
+            for (final int length : lengths) {
+                final int startIndex = 3;
+                final int stopIndex = startIndex + length - 1;
+                long expectedCrc = seed;
+                long expectedAdler = seed;
+                /* Single bytes are below the threshold of the java.util.zip path. */
+                for (int i = startIndex; i <= stopIndex; i++) {
+                    expectedCrc = Zip.primitiveUpdateGZipCrc32(collection, i, i, expectedCrc);
+                    expectedAdler = Zip.primitiveUpdateAdler32(expectedAdler, i, i, collection);
+                }
+                assertEquals("CRC32 from " + seed + " over " + length, expectedCrc, Zip.primitiveUpdateGZipCrc32(collection, startIndex, stopIndex, seed));
+                assertEquals("Adler32 from " + seed + " over " + length, expectedAdler, Zip.primitiveUpdateAdler32(seed, startIndex, stopIndex, collection));
+            }
+        }
+    }
+
+    @Test
+    public void testZipInflateOverlappingMatch() {
+        final ClassObject readStreamClass = createPointersClass(null, 3);
+        final ClassObject inflateStreamClass = createPointersClass(readStreamClass, 14);
+        /* Literals 'a' and 'b' (codes 0 and 1), a match of length 10 (2), and end of block (3). */
+        final NativeObject litTable = NativeObject.newNativeInts(image, image.bitmapClass, new int[]{2 << 24, 'a', 'b', 1 << 16 | 10, 256});
+        /* Two-bit literal codes and a one-bit distance code: a, b, match, distance code 0, end. */
+        final byte[] source = {(byte) (0 | 1 << 2 | 2 << 4 | 0 << 6 | 3 << 7), 3 >> 1};
+        for (final int distance : new int[]{1, 2}) {
+            final NativeObject distTable = NativeObject.newNativeInts(image, image.bitmapClass, new int[]{1 << 24, distance, distance});
+            final PointersObject stream = (PointersObject) SqueakObjectNewNode.getUncached().execute(image, inflateStreamClass);
+            final NativeObject collection = image.asByteArray(new byte[64]);
+            final Object[] values = {collection, 0L, 0L, 0L, 0L, 0L, image.asByteArray(source), 0L, (long) source.length};
+            for (int i = 0; i < values.length; i++) {
+                stream.instVarAtPut0Slow(i, values[i]);
+            }
+            assertTrue(image.zip.readStreamHasCorrectSize(stream));
+            image.zip.primitiveInflateDecompressBlock(stream, litTable, distTable);
+            final String expected = distance == 1 ? "abbbbbbbbbbb" : "abababababab";
+            assertEquals((long) expected.length(), stream.instVarAt0Slow(2));
+            assertEquals(expected, new String(collection.getByteStorage(), 0, expected.length()));
+        }
+    }
+
+    @Test
+    public void testFileReadIntsLeavesTrailingBytesUnread() throws IOException {
+        final Path path = Files.createTempFile("trufflesqueak-ints", ".bin");
+        try {
+            final byte[] bytes = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+            Files.write(path, bytes);
+            final int[] expected = new int[2];
+            ByteBuffer.wrap(bytes).order(ByteOrder.nativeOrder()).asIntBuffer().get(expected);
+            for (final boolean buffered : new boolean[]{true, false}) {
+                final PointersObject fd = buffered ? (PointersObject) runFilePrimitive("primitiveFileOpen", NilObject.SINGLETON, image.asByteString(path.toString()), BooleanObject.FALSE)
+                                : PointersObject.newHandleWithHiddenObject(image, Files.newByteChannel(path));
+                try {
+                    final NativeObject target = NativeObject.newNativeInts(image, image.bitmapClass, new int[]{-1, -1, -1});
+                    assertEquals(2L, runFilePrimitive("primitiveFileRead", NilObject.SINGLETON, fd, target, 1L, 3L));
+                    assertArrayEquals(new int[]{expected[0], expected[1], -1}, target.getIntStorage());
+                    final NativeObject rest = image.asByteArray(new byte[4]);
+                    assertEquals(2L, runFilePrimitive("primitiveFileRead", NilObject.SINGLETON, fd, rest, 1L, 4L));
+                    assertArrayEquals(new byte[]{9, 10, 0, 0}, rest.getByteStorage());
+                } finally {
+                    runFilePrimitive("primitiveFileClose", NilObject.SINGLETON, fd);
+                }
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static ClassObject createPointersClass(final ClassObject superclass, final int instanceSize) {
+        final ClassObject classObject = new ClassObject(image);
+        classObject.fillin(SqueakImageChunk.createDummyChunk(image, new Object[]{superclass, null, 65536L | instanceSize, null, null}));
+        return classObject;
+    }
+
+    private static byte[] createCompressibleBytes() {
+        final Random random = new Random(42);
+        final byte[] data = new byte[100000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + random.nextInt(8));
+        }
+        return data;
+    }
+
+    private static Object runFilePrimitive(final String name, final Object... receiverAndArguments) {
+        return runPrimitive(FilePluginFactory.getFactories(), name, receiverAndArguments);
+    }
+
+    private static Object runZipPrimitive(final String name, final Object... receiverAndArguments) {
+        return runPrimitive(ZipPluginFactory.getFactories(), name, receiverAndArguments);
+    }
+
+    private static Object runPrimitive(final List<? extends NodeFactory<? extends AbstractPrimitiveNode>> factories, final String name, final Object... receiverAndArguments) {
+        for (final NodeFactory<? extends AbstractPrimitiveNode> factory : factories) {
+            if (factory.getNodeClass().getAnnotation(SqueakPrimitive.class).names()[0].equals(name)) {
+                return factory.createNode((Object) null).executeWithArguments(null, receiverAndArguments);
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
 }
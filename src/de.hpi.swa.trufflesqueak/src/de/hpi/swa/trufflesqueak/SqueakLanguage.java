@@ -42,6 +42,13 @@ public final class SqueakLanguage extends TruffleLanguage<SqueakImageContext> {
         return new SqueakImageContext(this, env);
     }
 
+    @Override
+    protected void initializeContext(final SqueakImageContext context) {
+        if (context.env.isPreInitialization()) {
+            context.preinitializeImage();
+        }
+    }
+
     @Override
     protected CallTarget parse(final ParsingRequest request) throws Exception {
         final SqueakImageContext image = getContext();
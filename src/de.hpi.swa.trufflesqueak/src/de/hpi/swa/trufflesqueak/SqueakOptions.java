@@ -26,12 +26,36 @@ public final class SqueakOptions {
     @Option(name = SqueakLanguageOptions.IMAGE_ARGUMENTS, category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL, help = SqueakLanguageOptions.IMAGE_ARGUMENTS_HELP)//
     public static final OptionKey<String> ImageArguments = new OptionKey<>("");
 
+    @Option(name = SqueakLanguageOptions.BITBLT_PARALLEL_THRESHOLD, category = OptionCategory.EXPERT, stability = OptionStability.EXPERIMENTAL, help = SqueakLanguageOptions.BITBLT_PARALLEL_THRESHOLD_HELP)//
+    public static final OptionKey<Integer> BitBltParallelThreshold = new OptionKey<>(1 << 16);
+
+    @Option(name = SqueakLanguageOptions.DISPLAY_FRAME_INTERVAL, category = OptionCategory.EXPERT, stability = OptionStability.EXPERIMENTAL, help = SqueakLanguageOptions.DISPLAY_FRAME_INTERVAL_HELP)//
+    public static final OptionKey<Integer> DisplayFrameInterval = new OptionKey<>(16);
+
+    @Option(name = SqueakLanguageOptions.DISPLAY_STREAM, category = OptionCategory.EXPERT, stability = OptionStability.EXPERIMENTAL, help = SqueakLanguageOptions.DISPLAY_STREAM_HELP)//
+    public static final OptionKey<String> DisplayStream = new OptionKey<>("");
+
+    @Option(name = SqueakLanguageOptions.EVENT_DRIVEN_INTERRUPTS, category = OptionCategory.EXPERT, stability = OptionStability.EXPERIMENTAL, help = SqueakLanguageOptions.EVENT_DRIVEN_INTERRUPTS_HELP)//
+    public static final OptionKey<Boolean> EventDrivenInterrupts = new OptionKey<>(false);
+
+    @Option(name = SqueakLanguageOptions.FILE_READ_AHEAD, category = OptionCategory.EXPERT, stability = OptionStability.EXPERIMENTAL, help = SqueakLanguageOptions.FILE_READ_AHEAD_HELP)//
+    public static final OptionKey<Integer> FileReadAhead = new OptionKey<>(64 * 1024);
+
+    @Option(name = SqueakLanguageOptions.FILE_WRITE_BEHIND, category = OptionCategory.EXPERT, stability = OptionStability.EXPERIMENTAL, help = SqueakLanguageOptions.FILE_WRITE_BEHIND_HELP)//
+    public static final OptionKey<Integer> FileWriteBehind = new OptionKey<>(0);
+
     @Option(name = SqueakLanguageOptions.HEADLESS, category = OptionCategory.USER, stability = OptionStability.STABLE, help = SqueakLanguageOptions.HEADLESS_HELP)//
     public static final OptionKey<Boolean> Headless = new OptionKey<>(true);
 
+    @Option(name = SqueakLanguageOptions.INSTANCE_REGISTRY, category = OptionCategory.EXPERT, stability = OptionStability.EXPERIMENTAL, help = SqueakLanguageOptions.INSTANCE_REGISTRY_HELP)//
+    public static final OptionKey<Boolean> InstanceRegistry = new OptionKey<>(false);
+
     @Option(name = SqueakLanguageOptions.INTERCEPT_MESSAGES, category = OptionCategory.INTERNAL, stability = OptionStability.EXPERIMENTAL, help = SqueakLanguageOptions.INTERCEPT_MESSAGES_HELP)//
     public static final OptionKey<String> InterceptMessages = new OptionKey<>("");
 
+    @Option(name = SqueakLanguageOptions.METHOD_CACHE_SIZE, category = OptionCategory.EXPERT, stability = OptionStability.EXPERIMENTAL, help = SqueakLanguageOptions.METHOD_CACHE_SIZE_HELP)//
+    public static final OptionKey<Integer> MethodCacheSize = new OptionKey<>(4096);
+
     @Option(name = SqueakLanguageOptions.QUIET, category = OptionCategory.USER, stability = OptionStability.STABLE, help = SqueakLanguageOptions.QUIET_HELP)//
     public static final OptionKey<Boolean> Quiet = new OptionKey<>(true);
 
@@ -41,6 +65,12 @@ public final class SqueakOptions {
     @Option(name = SqueakLanguageOptions.SIGNAL_INPUT_SEMAPHORE, category = OptionCategory.INTERNAL, stability = OptionStability.EXPERIMENTAL, help = SqueakLanguageOptions.SIGNAL_INPUT_SEMAPHORE_HELP)//
     public static final OptionKey<Boolean> SignalInputSemaphore = new OptionKey<>(false);
 
+    @Option(name = SqueakLanguageOptions.SSL_SESSION_CACHE_SIZE, category = OptionCategory.EXPERT, stability = OptionStability.EXPERIMENTAL, help = SqueakLanguageOptions.SSL_SESSION_CACHE_SIZE_HELP)//
+    public static final OptionKey<Integer> SSLSessionCacheSize = new OptionKey<>(1024);
+
+    @Option(name = SqueakLanguageOptions.SSL_SESSION_TIMEOUT, category = OptionCategory.EXPERT, stability = OptionStability.EXPERIMENTAL, help = SqueakLanguageOptions.SSL_SESSION_TIMEOUT_HELP)//
+    public static final OptionKey<Integer> SSLSessionTimeout = new OptionKey<>(24 * 60 * 60);
+
     @Option(name = SqueakLanguageOptions.STARTUP, category = OptionCategory.INTERNAL, stability = OptionStability.EXPERIMENTAL, help = SqueakLanguageOptions.STARTUP_HELP)//
     public static final OptionKey<Boolean> Startup = new OptionKey<>(false);
 
@@ -61,22 +91,42 @@ public final class SqueakOptions {
         public final String imagePath;
         public final String[] imageArguments;
         public final boolean isHeadless;
+        public final int bitbltParallelThreshold;
+        public final int displayFrameInterval;
+        public final String displayStream;
+        public final boolean eventDrivenInterrupts;
+        public final int fileReadAhead;
+        public final int fileWriteBehind;
         public final boolean isQuiet;
+        public final boolean instanceRegistry;
+        public final int methodCacheSize;
         public final boolean disableInterruptHandler;
         public final boolean disableStartup;
         public final boolean enableStorageStrategies;
         public final boolean isTesting;
         public final boolean signalInputSemaphore;
+        public final int sslSessionCacheSize;
+        public final int sslSessionTimeout;
 
         public SqueakContextOptions(final Env env) {
             final OptionValues options = env.getOptions();
             imagePath = options.get(ImagePath);
             imageArguments = options.get(ImageArguments).isEmpty() ? new String[0] : options.get(ImageArguments).split(",");
             isHeadless = options.get(Headless);
+            bitbltParallelThreshold = options.get(BitBltParallelThreshold);
+            displayFrameInterval = options.get(DisplayFrameInterval);
+            displayStream = options.get(DisplayStream);
+            eventDrivenInterrupts = options.get(EventDrivenInterrupts);
+            fileReadAhead = options.get(FileReadAhead);
+            fileWriteBehind = options.get(FileWriteBehind);
             isQuiet = options.get(Quiet);
+            instanceRegistry = options.get(InstanceRegistry);
+            methodCacheSize = options.get(MethodCacheSize);
             disableInterruptHandler = options.get(Interrupts);
             disableStartup = options.get(Startup);
             signalInputSemaphore = options.get(SignalInputSemaphore);
+            sslSessionCacheSize = options.get(SSLSessionCacheSize);
+            sslSessionTimeout = options.get(SSLSessionTimeout);
             enableStorageStrategies = options.get(StorageStrategies);
             isTesting = options.get(Testing);
         }
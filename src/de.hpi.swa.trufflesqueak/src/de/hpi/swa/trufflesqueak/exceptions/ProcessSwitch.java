@@ -11,6 +11,13 @@ import com.oracle.truffle.api.nodes.ControlFlowException;
 
 import de.hpi.swa.trufflesqueak.model.ContextObject;
 
+/**
+ * Unwinds the Java stack of the active process back to the top-level loop, which then resumes
+ * {@link #getNewContext()}. Frames are materialized on the way out, but only up to the nearest
+ * resumed context because its senders already are contexts. A switch therefore costs time
+ * proportional to the frames entered since the process was last resumed, not to its full stack
+ * depth.
+ */
 public final class ProcessSwitch extends ControlFlowException {
     private static final long serialVersionUID = 1L;
     private final ContextObject newContext;
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2017-2021 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.trufflesqueak.image;
+
+import java.util.function.Consumer;
+
+/**
+ * Open-addressing table mapping object pointers to {@link SqueakImageChunk}s. Unlike a
+ * {@code HashMap<Long, SqueakImageChunk>}, it neither boxes keys nor allocates an entry per object,
+ * which keeps the peak heap usage during image loading close to the size of the chunks themselves.
+ * Object pointers are always non-zero, so zero marks free slots.
+ */
+final class SqueakImageChunkTable {
+    private static final int INITIAL_CAPACITY = 1 << 20;
+
+    private long[] keys;
+    private SqueakImageChunk[] values;
+    private int mask;
+    private int size;
+
+    SqueakImageChunkTable() {
+        keys = new long[INITIAL_CAPACITY];
+        values = new SqueakImageChunk[INITIAL_CAPACITY];
+        mask = INITIAL_CAPACITY - 1;
+    }
+
+    private static int hash(final long ptr) {
+        /* Pointers are word-aligned, so drop the tag bits before mixing. */
+        final long h = (ptr >>> SqueakImageConstants.NUM_TAG_BITS) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ h >>> 32);
+    }
+
+    void put(final long ptr, final SqueakImageChunk chunk) {
+        assert ptr != 0 && chunk != null;
+        if (size >= (mask + 1) - ((mask + 1) >>> 2)) {
+            grow();
+        }
+        int index = hash(ptr) & mask;
+        while (true) {
+            final long key = keys[index];
+            if (key == 0) {
+                keys[index] = ptr;
+                values[index] = chunk;
+                size++;
+                return;
+            } else if (key == ptr) {
+                values[index] = chunk;
+                return;
+            }
+            index = index + 1 & mask;
+        }
+    }
+
+    SqueakImageChunk get(final long ptr) {
+        if (ptr == 0) {
+            return null;
+        }
+        int index = hash(ptr) & mask;
+        while (true) {
+            final long key = keys[index];
+            if (key == ptr) {
+                return values[index];
+            } else if (key == 0) {
+                return null;
+            }
+            index = index + 1 & mask;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEachChunk(final Consumer<SqueakImageChunk> action) {
+        for (final SqueakImageChunk chunk : values) {
+            if (chunk != null) {
+                action.accept(chunk);
+            }
+        }
+    }
+
+    private void grow() {
+        final long[] oldKeys = keys;
+        final SqueakImageChunk[] oldValues = values;
+        final int newCapacity = oldKeys.length << 1;
+        keys = new long[newCapacity];
+        values = new SqueakImageChunk[newCapacity];
+        mask = newCapacity - 1;
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
@@ -5,11 +5,15 @@
  */
 package de.hpi.swa.trufflesqueak.image;
 
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.lang.ref.ReferenceQueue;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
 import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.CompilerDirectives;
@@ -33,6 +37,7 @@ import de.hpi.swa.trufflesqueak.exceptions.SqueakExceptions.SqueakException;
 import de.hpi.swa.trufflesqueak.interop.LookupMethodByStringNode;
 import de.hpi.swa.trufflesqueak.io.SqueakDisplay;
 import de.hpi.swa.trufflesqueak.io.SqueakDisplayInterface;
+import de.hpi.swa.trufflesqueak.io.SqueakHeadlessDisplay;
 import de.hpi.swa.trufflesqueak.model.AbstractSqueakObject;
 import de.hpi.swa.trufflesqueak.model.AbstractSqueakObjectWithClassAndHash;
 import de.hpi.swa.trufflesqueak.model.ArrayObject;
@@ -108,20 +113,22 @@ public final class SqueakImageContext {
     public final CompiledCodeObject dummyMethod = new CompiledCodeObject(this, null, new Object[]{CompiledCodeObject.makeHeader(true, 1, 0, 0, false, true)}, compiledMethodClass);
 
     /* Method Cache */
-    private static final int METHOD_CACHE_SIZE = 1024;
-    private static final int METHOD_CACHE_MASK = METHOD_CACHE_SIZE - 1;
-    private static final int METHOD_CACHE_REPROBES = 4;
-    private int methodCacheRandomish;
-    @CompilationFinal(dimensions = 1) private final MethodCacheEntry[] methodCache = new MethodCacheEntry[METHOD_CACHE_SIZE];
+    private static final int METHOD_CACHE_WAYS = 4;
+    @CompilationFinal private int methodCacheSetMask;
+    @CompilationFinal(dimensions = 1) private MethodCacheEntry[] methodCache;
+    @CompilationFinal(dimensions = 1) private byte[] methodCacheNextVictims;
+    private final IdentityHashMap<NativeObject, MethodCacheEntry> methodCacheSelectorIndex = new IdentityHashMap<>();
+    private long methodCacheHits;
+    private long methodCacheMisses;
+    private long methodCacheEvictions;
 
     /* System Information */
     public final SqueakImageFlags flags = new SqueakImageFlags();
     private String imagePath;
-    private final TruffleFile homePath;
+    @CompilationFinal private TruffleFile homePath;
     @CompilationFinal(dimensions = 1) private byte[] resourcesDirectoryBytes;
     @CompilationFinal(dimensions = 1) private byte[] resourcesPathBytes;
-    private final boolean isHeadless;
-    public final SqueakContextOptions options;
+    @CompilationFinal public SqueakContextOptions options;
     private final SqueakSystemAttributes systemAttributes = new SqueakSystemAttributes(this);
 
     /* System */
@@ -131,11 +138,11 @@ public final class SqueakImageContext {
     private long globalClassCounter = -1;
     @CompilationFinal private SqueakDisplayInterface display;
     public final CheckForInterruptsState interrupt;
-    public final long startUpMillis = System.currentTimeMillis();
+    @CompilationFinal public long startUpMillis;
     public final ReferenceQueue<Object> weakPointersQueue = new ReferenceQueue<>();
 
     /* Truffle */
-    private final AllocationReporter allocationReporter;
+    @CompilationFinal private AllocationReporter allocationReporter;
     @CompilationFinal public SqueakLanguage.Env env;
     private final SqueakLanguage language;
     private Source lastParseRequestSource;
@@ -145,6 +152,10 @@ public final class SqueakImageContext {
 
     @CompilationFinal private SqueakImage squeakImage;
 
+    /* Context pre-initialization (see SqueakLanguage#initializeContext) */
+    private String preinitializedImagePath;
+    private long preinitializedImageLastModified;
+
     /* Stack Management */
     private ContextObject interopExceptionThrowingContextPrototype;
     public ContextObject lastSeenContext;
@@ -173,21 +184,48 @@ public final class SqueakImageContext {
     public SqueakImageContext(final SqueakLanguage squeakLanguage, final SqueakLanguage.Env environment) {
         language = squeakLanguage;
         patch(environment);
-        options = new SqueakContextOptions(env);
-        isHeadless = options.isHeadless;
         interrupt = new CheckForInterruptsState(this);
-        allocationReporter = env.lookup(AllocationReporter.class);
         SqueakMessageInterceptor.enableIfRequested(environment);
-        final String truffleLanguageHome = language.getTruffleLanguageHome();
-        if (truffleLanguageHome != null) {
-            homePath = env.getInternalTruffleFile(truffleLanguageHome);
-        } else { /* Fall back to image directory if language home is not set. */
-            homePath = env.getInternalTruffleFile(options.imagePath).getParent();
-        }
-        assert homePath.exists() : "Home directory does not exist: " + homePath;
         initializeMethodCache();
     }
 
+    /**
+     * Loads the image while the context is pre-initialized during native image generation, so that
+     * all objects, classes, and methods of the image become part of the image heap. The image
+     * startup routine still runs at runtime (see {@link #ensureLoaded()}).
+     */
+    public void preinitializeImage() {
+        assert env.isPreInitialization();
+        if (options.imagePath.isEmpty()) {
+            return; /* No image requested at build time. */
+        }
+        final TruffleFile imageFile = env.getPublicTruffleFile(options.imagePath).getAbsoluteFile().normalize();
+        try {
+            preinitializedImageLastModified = imageFile.getLastModifiedTime().toMillis();
+        } catch (final IOException e) {
+            throw SqueakException.create("Failed to pre-initialize image:", e);
+        }
+        SqueakImageReader.load(this);
+        preinitializedImagePath = imageFile.getPath();
+        squeakImage = null; /* Image still needs to be started at runtime. */
+    }
+
+    public boolean isPreinitialized() {
+        return preinitializedImagePath != null;
+    }
+
+    private boolean canUsePreinitializedImage(final SqueakLanguage.Env newEnv, final SqueakContextOptions newOptions) {
+        if (newOptions.imagePath.isEmpty()) {
+            return true;
+        }
+        final TruffleFile imageFile = newEnv.getPublicTruffleFile(newOptions.imagePath).getAbsoluteFile().normalize();
+        try {
+            return preinitializedImagePath.equals(imageFile.getPath()) && preinitializedImageLastModified == imageFile.getLastModifiedTime().toMillis();
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
     public void ensureLoaded() {
         if (!loaded()) {
             // Load image.
@@ -248,9 +286,23 @@ public final class SqueakImageContext {
 
     public boolean patch(final SqueakLanguage.Env newEnv) {
         CompilerDirectives.transferToInterpreterAndInvalidate();
+        final SqueakContextOptions newOptions = new SqueakContextOptions(newEnv);
+        if (isPreinitialized() && !canUsePreinitializedImage(newEnv, newOptions)) {
+            return false; /* Let Truffle create a fresh context for a different or modified image. */
+        }
         env = newEnv;
+        options = newOptions;
         output = new PrintWriter(env.out(), true);
         error = new PrintWriter(env.err(), true);
+        allocationReporter = env.lookup(AllocationReporter.class);
+        startUpMillis = System.currentTimeMillis();
+        final String truffleLanguageHome = language.getTruffleLanguageHome();
+        if (truffleLanguageHome != null) {
+            homePath = env.getInternalTruffleFile(truffleLanguageHome);
+        } else { /* Fall back to image directory if language home is not set. */
+            homePath = env.getInternalTruffleFile(options.imagePath).getParent();
+        }
+        assert homePath.exists() : "Home directory does not exist: " + homePath;
         return true;
     }
 
@@ -490,10 +542,31 @@ public final class SqueakImageContext {
                 /* Image only uses a single String class (e.g. Cuis 5.0). */
                 wideStringClass = byteStringClass;
             }
+            wideStringClass.disableInstanceRegistry();
         }
         return wideStringClass;
     }
 
+    /**
+     * Answers the classes that are instantiated from Java code. Their instances do not pass through
+     * SqueakObjectNewNode, so they cannot be tracked in instance registries.
+     */
+    public Set<ClassObject> getSpecialClasses() {
+        final Set<ClassObject> classes = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (specialObjectsArray.isObjectType()) {
+            for (final Object value : specialObjectsArray.getObjectStorage()) {
+                if (value instanceof ClassObject) {
+                    classes.add((ClassObject) value);
+                }
+            }
+        }
+        Collections.addAll(classes, trueClass, falseClass, bitmapClass, smallIntegerClass, byteStringClass, arrayClass, floatClass, methodContextClass, pointClass,
+                        largePositiveIntegerClass, messageClass, compiledMethodClass, semaphoreClass, characterClass, byteArrayClass, processClass, blockClosureClass,
+                        largeNegativeIntegerClass, fullBlockClosureClass, smallFloatClass, byteSymbolClass, foreignObjectClass, fractionClass, wideStringClass, metaClass, nilClass);
+        classes.remove(null);
+        return classes;
+    }
+
     public static void initializeBeforeLoadingImage() {
         SlotLocation.initialize();
     }
@@ -512,6 +585,7 @@ public final class SqueakImageContext {
         if (foreignObjectClass == null) {
             CompilerDirectives.transferToInterpreterAndInvalidate();
             foreignObjectClass = classObject;
+            foreignObjectClass.disableInstanceRegistry();
             return true;
         } else {
             return false;
@@ -607,13 +681,16 @@ public final class SqueakImageContext {
     }
 
     public boolean isHeadless() {
-        return isHeadless;
+        return options.isHeadless;
     }
 
     public void attachDisplayIfNecessary() {
-        if (!isHeadless) {
+        if (!isHeadless()) {
             CompilerDirectives.transferToInterpreterAndInvalidate();
             display = new SqueakDisplay(this);
+        } else if (!options.displayStream.isEmpty()) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            display = new SqueakHeadlessDisplay(this, options.displayStream);
         }
     }
 
@@ -636,62 +713,127 @@ public final class SqueakImageContext {
      */
 
     private void initializeMethodCache() {
-        for (int i = 0; i < METHOD_CACHE_SIZE; i++) {
+        final int numSets = Integer.highestOneBit(Math.max(options.methodCacheSize / METHOD_CACHE_WAYS * 2 - 1, 1));
+        methodCacheSetMask = numSets - 1;
+        methodCache = new MethodCacheEntry[numSets * METHOD_CACHE_WAYS];
+        methodCacheNextVictims = new byte[numSets];
+        for (int i = 0; i < methodCache.length; i++) {
             methodCache[i] = new MethodCacheEntry();
         }
     }
 
     /*
-     * Probe the cache, and return the matching entry if found. Otherwise return one that can be
-     * used (selector and class set) with method == null. Initial probe is class xor selector,
-     * reprobe delta is selector. We do not try to optimize probe time -- all are equally 'fast'
-     * compared to lookup. Instead we randomize the reprobe so two or three very active conflicting
-     * entries will not keep dislodging each other.
+     * The method cache is set-associative: class and selector determine a set of
+     * METHOD_CACHE_WAYS consecutive entries, which are all probed. Free entries of a set are
+     * reused first, otherwise entries are evicted round-robin per set, so that a few very active
+     * conflicting entries do not keep dislodging each other.
      */
     @ExplodeLoop
     public MethodCacheEntry findMethodCacheEntry(final ClassObject classObject, final NativeObject selector) {
-        methodCacheRandomish = methodCacheRandomish + 1 & 3;
-        final int selectorHash = MiscUtils.identityHashCode(selector);
-        int firstProbe = (MiscUtils.identityHashCode(classObject) ^ selectorHash) & METHOD_CACHE_MASK;
-        int probe = firstProbe;
-        for (int i = 0; i < METHOD_CACHE_REPROBES; i++) {
-            final MethodCacheEntry entry = methodCache[probe];
+        final int firstEntry = methodCacheSetIndex(classObject, selector) * METHOD_CACHE_WAYS;
+        for (int i = 0; i < METHOD_CACHE_WAYS; i++) {
+            final MethodCacheEntry entry = methodCache[firstEntry + i];
             if (entry.getClassObject() == classObject && entry.getSelector() == selector) {
+                methodCacheHits++;
                 return entry;
             }
-            if (i == methodCacheRandomish) {
-                firstProbe = probe;
+        }
+        return replaceMethodCacheEntry(firstEntry, classObject, selector);
+    }
+
+    private int methodCacheSetIndex(final ClassObject classObject, final NativeObject selector) {
+        final int hash = (MiscUtils.identityHashCode(classObject) * 31 + MiscUtils.identityHashCode(selector)) * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & methodCacheSetMask;
+    }
+
+    @TruffleBoundary
+    private MethodCacheEntry replaceMethodCacheEntry(final int firstEntry, final ClassObject classObject, final NativeObject selector) {
+        methodCacheMisses++;
+        MethodCacheEntry victim = null;
+        for (int i = 0; i < METHOD_CACHE_WAYS; i++) {
+            if (methodCache[firstEntry + i].getSelector() == null) {
+                victim = methodCache[firstEntry + i];
+                break;
             }
-            probe = probe + selectorHash & METHOD_CACHE_MASK;
         }
-        return methodCache[firstProbe].reuseFor(classObject, selector);
+        if (victim == null) {
+            final int set = firstEntry / METHOD_CACHE_WAYS;
+            final int way = methodCacheNextVictims[set];
+            methodCacheNextVictims[set] = (byte) (way + 1 & METHOD_CACHE_WAYS - 1);
+            victim = methodCache[firstEntry + way];
+            methodCacheEvictions++;
+            freeMethodCacheEntry(victim);
+        }
+        victim.reuseFor(classObject, selector);
+        final MethodCacheEntry head = methodCacheSelectorIndex.put(selector, victim);
+        if (head != null) {
+            victim.setNextWithSameSelector(head);
+            head.setPreviousWithSameSelector(victim);
+        }
+        return victim;
+    }
+
+    private void freeMethodCacheEntry(final MethodCacheEntry entry) {
+        final Object selector = entry.getSelector();
+        if (selector == null) {
+            return; /* Already free. */
+        }
+        final MethodCacheEntry previous = entry.getPreviousWithSameSelector();
+        final MethodCacheEntry next = entry.getNextWithSameSelector();
+        if (previous != null) {
+            previous.setNextWithSameSelector(next);
+        } else if (next != null) {
+            methodCacheSelectorIndex.put((NativeObject) selector, next);
+        } else {
+            methodCacheSelectorIndex.remove(selector);
+        }
+        if (next != null) {
+            next.setPreviousWithSameSelector(previous);
+        }
+        entry.freeAndRelease();
     }
 
     /* Clear all cache entries (prim 89). */
+    @TruffleBoundary
     public void flushMethodCache() {
-        for (int i = 0; i < METHOD_CACHE_SIZE; i++) {
-            methodCache[i].freeAndRelease();
+        for (final MethodCacheEntry entry : methodCache) {
+            entry.freeAndRelease();
         }
+        methodCacheSelectorIndex.clear();
     }
 
     /* Clear cache entries for selector (prim 119). */
+    @TruffleBoundary
     public void flushMethodCacheForSelector(final NativeObject selector) {
-        for (int i = 0; i < METHOD_CACHE_SIZE; i++) {
-            if (methodCache[i].getSelector() == selector) {
-                methodCache[i].freeAndRelease();
-            }
+        MethodCacheEntry entry = methodCacheSelectorIndex.remove(selector);
+        while (entry != null) {
+            final MethodCacheEntry next = entry.getNextWithSameSelector();
+            entry.freeAndRelease();
+            entry = next;
         }
     }
 
     /* Clear cache entries for method (prim 116). */
+    @TruffleBoundary
     public void flushMethodCacheForMethod(final CompiledCodeObject method) {
-        for (int i = 0; i < METHOD_CACHE_SIZE; i++) {
-            if (methodCache[i].getResult() == method) {
-                methodCache[i].freeAndRelease();
+        for (final MethodCacheEntry entry : methodCache) {
+            if (entry.getResult() == method) {
+                freeMethodCacheEntry(entry);
             }
         }
     }
 
+    /* Returns size, hits, misses, and evictions of the method cache. */
+    public long[] getMethodCacheStatistics() {
+        return new long[]{methodCache.length, methodCacheHits, methodCacheMisses, methodCacheEvictions};
+    }
+
+    public void resetMethodCacheStatistics() {
+        methodCacheHits = 0;
+        methodCacheMisses = 0;
+        methodCacheEvictions = 0;
+    }
+
     public void flushMethodCacheAfterBecome() {
         /* TODO: Could be selective by checking class, selector, and method against mutations. */
         flushMethodCache();
@@ -715,6 +857,7 @@ public final class SqueakImageContext {
             final Object fractionLookup = lookup("Fraction");
             if (fractionLookup instanceof ClassObject) {
                 fractionClass = (ClassObject) fractionLookup;
+                fractionClass.disableInstanceRegistry();
             } else {
                 throw SqueakException.create("Unable to find Fraction class");
             }
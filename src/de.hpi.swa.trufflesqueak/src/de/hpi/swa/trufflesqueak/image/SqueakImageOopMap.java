@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2017-2021 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.trufflesqueak.image;
+
+import de.hpi.swa.trufflesqueak.util.MiscUtils;
+
+/**
+ * Open-addressing identity map from objects to the object pointers assigned to them by the
+ * {@link SqueakImageWriter}. Keys are compared by identity (some objects, such as large integers,
+ * implement value equality but must still be written as distinct objects) and oops are stored
+ * unboxed. Object pointers are always non-zero, so zero is returned for unknown objects.
+ */
+final class SqueakImageOopMap {
+    private Object[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    SqueakImageOopMap(final int expectedSize) {
+        final int capacity = Integer.highestOneBit(Math.max(expectedSize, 1 << 10) * 2 - 1) << 1;
+        keys = new Object[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hash(final Object object) {
+        final int h = MiscUtils.identityHashCode(object) * 0x9E3779B9;
+        return h ^ h >>> 16;
+    }
+
+    void put(final Object object, final long oop) {
+        assert object != null && oop != 0;
+        if (size >= (mask + 1) - ((mask + 1) >>> 2)) {
+            grow();
+        }
+        int index = hash(object) & mask;
+        while (true) {
+            final Object key = keys[index];
+            if (key == null) {
+                keys[index] = object;
+                values[index] = oop;
+                size++;
+                return;
+            } else if (key == object) {
+                values[index] = oop;
+                return;
+            }
+            index = index + 1 & mask;
+        }
+    }
+
+    long get(final Object object) {
+        int index = hash(object) & mask;
+        while (true) {
+            final Object key = keys[index];
+            if (key == object) {
+                return values[index];
+            } else if (key == null) {
+                return 0;
+            }
+            index = index + 1 & mask;
+        }
+    }
+
+    boolean containsKey(final Object object) {
+        return get(object) != 0;
+    }
+
+    private void grow() {
+        final Object[] oldKeys = keys;
+        final long[] oldValues = values;
+        final int newCapacity = oldKeys.length << 1;
+        keys = new Object[newCapacity];
+        values = new long[newCapacity];
+        mask = newCapacity - 1;
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
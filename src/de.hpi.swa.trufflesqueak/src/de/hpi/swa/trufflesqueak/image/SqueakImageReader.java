@@ -5,10 +5,16 @@
  */
 package de.hpi.swa.trufflesqueak.image;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.Set;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.TruffleFile;
@@ -27,19 +33,18 @@ import de.hpi.swa.trufflesqueak.model.layout.ObjectLayouts.SPECIAL_OBJECT;
 import de.hpi.swa.trufflesqueak.model.layout.ObjectLayouts.SPECIAL_OBJECT_TAG;
 import de.hpi.swa.trufflesqueak.nodes.accessing.ArrayObjectNodes.ArrayObjectReadNode;
 import de.hpi.swa.trufflesqueak.util.MiscUtils;
-import de.hpi.swa.trufflesqueak.util.UnsafeUtils;
 
 public final class SqueakImageReader {
     protected SqueakImageChunk hiddenRootsChunk;
 
-    private final BufferedInputStream stream;
-    private final HashMap<Long, SqueakImageChunk> chunktable = new HashMap<>(750000);
+    private final ByteBuffer buffer;
+    private SqueakImageChunkTable chunktable = new SqueakImageChunkTable();
     private final SqueakImageContext image;
-    private final byte[] byteArrayBuffer = new byte[Long.BYTES];
 
     private long oldBaseAddress;
     private long specialObjectsPointer;
     private long firstSegmentSize;
+    private int headerOffset;
     private int position;
     private long currentAddressSwizzle;
     private final byte[] emptyBytes = new byte[0];
@@ -51,15 +56,15 @@ public final class SqueakImageReader {
         if (!truffleFile.isRegularFile()) {
             throw SqueakException.create(MiscUtils.format("Image at '%s' does not exist.", image.getImagePath()));
         }
-        BufferedInputStream inputStream = null;
+        ByteBuffer imageBuffer = null;
         try {
-            inputStream = new BufferedInputStream(truffleFile.newInputStream());
+            imageBuffer = mapImageFile(truffleFile);
         } catch (final IOException e) {
             if (!image.isTesting()) {
                 throw SqueakException.create(e);
             }
         }
-        stream = inputStream;
+        buffer = imageBuffer;
         this.image = image;
     }
 
@@ -69,87 +74,96 @@ public final class SqueakImageReader {
      */
     @TruffleBoundary
     public static void load(final SqueakImageContext image) {
+        if (image.isPreinitialized()) {
+            image.printToStdOut("Using pre-initialized image...");
+            image.getSqueakImage();
+            return;
+        }
         new SqueakImageReader(image).run();
     }
 
+    /**
+     * Maps the image file into memory if the underlying file system provides a {@link FileChannel}
+     * and falls back to reading the entire file into a heap buffer otherwise. Either way, the body
+     * is then scanned in a single pass without any intermediate stream buffering.
+     */
+    private static ByteBuffer mapImageFile(final TruffleFile truffleFile) throws IOException {
+        try (SeekableByteChannel channel = truffleFile.newByteChannel(EnumSet.of(StandardOpenOption.READ))) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw SqueakException.create(MiscUtils.format("Image at '%s' is too large (%s bytes).", truffleFile.getPath(), size));
+            }
+            final ByteBuffer result;
+            if (channel instanceof FileChannel) {
+                result = ((FileChannel) channel).map(MapMode.READ_ONLY, 0, size);
+            } else {
+                result = ByteBuffer.allocate((int) size);
+                while (result.hasRemaining()) {
+                    if (channel.read(result) < 0) {
+                        throw SqueakException.create("Unexpected end of image file");
+                    }
+                }
+            }
+            return result.order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
     private Object run() {
-        if (stream == null && image.isTesting()) {
+        if (buffer == null && image.isTesting()) {
             return null;
         }
         SqueakImageContext.initializeBeforeLoadingImage();
         final long start = MiscUtils.currentTimeMillis();
         readHeader();
-        try {
-            readBody();
-        } finally {
-            closeStream();
-        }
+        readBody();
+        final long readEnd = MiscUtils.currentTimeMillis();
+        final int numObjects = chunktable.size();
         initObjects();
-        image.printToStdOut("Image loaded in", MiscUtils.currentTimeMillis() - start + "ms.");
+        chunktable = null; /* Release chunks as early as possible. */
+        final long end = MiscUtils.currentTimeMillis();
+        image.printToStdOut("Image loaded in", end - start + "ms", MiscUtils.format("(read: %sms, %s objects; initialize: %sms).", readEnd - start, numObjects, end - readEnd));
         image.initializeAfterLoadingImage((ArrayObject) hiddenRootsChunk.asObject());
         return image.getSqueakImage();
     }
 
-    private long readBytes(final byte[] bytes, final int length) {
-        try {
-            final int readBytes = stream.read(bytes, 0, length);
-            assert readBytes == length : "Failed to read bytes";
-            return readBytes;
-        } catch (final IOException e) {
-            throw SqueakException.create("Failed to read next bytes:", e.getMessage());
-        }
-    }
-
     private long nextWord() {
         return nextLong();
     }
 
     private short nextShort() {
-        position += readBytes(byteArrayBuffer, Short.BYTES);
-        return UnsafeUtils.getShort(byteArrayBuffer, 0);
+        final short value = buffer.getShort(headerOffset + position);
+        position += Short.BYTES;
+        return value;
     }
 
     private int nextInt() {
-        position += readBytes(byteArrayBuffer, Integer.BYTES);
-        return UnsafeUtils.getInt(byteArrayBuffer, 0);
+        final int value = buffer.getInt(headerOffset + position);
+        position += Integer.BYTES;
+        return value;
     }
 
     private long nextLong() {
-        position += readBytes(byteArrayBuffer, Long.BYTES);
-        return UnsafeUtils.getLong(byteArrayBuffer, 0);
+        final long value = buffer.getLong(headerOffset + position);
+        position += Long.BYTES;
+        return value;
     }
 
     private byte[] nextObjectData(final int size, final int format) {
-        final int paddedObjectSize = size * SqueakImageConstants.WORD_SIZE;
-        final int padding = calculateObjectPadding(format);
-        final int dataSize = paddedObjectSize - padding;
         if (size == 0) {
             skipBytes(SqueakImageConstants.WORD_SIZE); // skip trailing alignment word
             return emptyBytes;
         }
+        final int paddedObjectSize = size * SqueakImageConstants.WORD_SIZE;
+        final int dataSize = paddedObjectSize - calculateObjectPadding(format);
         final byte[] bytes = new byte[dataSize];
-        readBytes(bytes, dataSize);
-        try {
-            final long skipped = stream.skip(padding);
-            assert skipped == padding : "Failed to skip padding bytes";
-        } catch (final IOException e) {
-            throw SqueakException.create("Failed to skip next bytes:", e);
-        }
+        buffer.position(headerOffset + position);
+        buffer.get(bytes);
         position += paddedObjectSize;
         return bytes;
     }
 
     private void skipBytes(final long count) {
-        long pending = count;
-        try {
-            while (pending > 0) {
-                final long skipped = stream.skip(pending);
-                assert skipped > 0 : "Nothing skipped, reached EOF?";
-                pending -= skipped;
-            }
-        } catch (final IOException e) {
-            throw SqueakException.create("Failed to skip next bytes:", e);
-        }
+        assert headerOffset + position + count <= buffer.limit() : "Reached end of image file";
         position += count;
     }
 
@@ -191,6 +205,7 @@ public final class SqueakImageReader {
     }
 
     private void readBody() {
+        headerOffset = position;
         position = 0;
         long segmentEnd = firstSegmentSize;
         currentAddressSwizzle = oldBaseAddress;
@@ -217,14 +232,6 @@ public final class SqueakImageReader {
         }
     }
 
-    private void closeStream() {
-        try {
-            stream.close();
-        } catch (final IOException e) {
-            throw SqueakException.create("Failed to close stream:", e);
-        }
-    }
-
     private void putChunk(final SqueakImageChunk chunk) {
         chunktable.put(chunk.getPosition() + currentAddressSwizzle, chunk);
     }
@@ -352,6 +359,9 @@ public final class SqueakImageReader {
         fillInObjects();
         fillInContextObjects();
         fillInClassesFromCompactClassList();
+        if (image.options.instanceRegistry) {
+            fillInInstanceRegistries();
+        }
     }
 
     /**
@@ -430,7 +440,7 @@ public final class SqueakImageReader {
     }
 
     private void fillInObjects() {
-        for (final SqueakImageChunk chunk : chunktable.values()) {
+        chunktable.forEachChunk(chunk -> {
             final Object chunkObject = chunk.asObject();
             if (chunkObject instanceof AbstractSqueakObjectWithClassAndHash) {
                 final AbstractSqueakObjectWithClassAndHash obj = (AbstractSqueakObjectWithClassAndHash) chunkObject;
@@ -442,18 +452,35 @@ public final class SqueakImageReader {
                 }
                 obj.fillin(chunk);
             }
-        }
+        });
+    }
+
+    private void fillInInstanceRegistries() {
+        final Set<ClassObject> specialClasses = image.getSpecialClasses();
+        chunktable.forEachChunk(chunk -> {
+            final Object chunkObject = chunk.asObject();
+            if (chunkObject instanceof ClassObject && !specialClasses.contains(chunkObject)) {
+                ((ClassObject) chunkObject).enableInstanceRegistry();
+            }
+        });
+        chunktable.forEachChunk(chunk -> {
+            final Object chunkObject = chunk.asObject();
+            if (chunkObject instanceof AbstractSqueakObjectWithClassAndHash) {
+                final AbstractSqueakObjectWithClassAndHash obj = (AbstractSqueakObjectWithClassAndHash) chunkObject;
+                obj.getSqueakClass().registerNewInstance(obj);
+            }
+        });
     }
 
     private void fillInContextObjects() {
-        for (final SqueakImageChunk chunk : chunktable.values()) {
+        chunktable.forEachChunk(chunk -> {
             final Object chunkObject = chunk.asObject();
             if (chunkObject instanceof ContextObject) {
                 final ContextObject contextObject = (ContextObject) chunkObject;
                 assert !contextObject.hasTruffleFrame();
                 contextObject.fillinContext(chunk);
             }
-        }
+        });
     }
 
     private void fillInClassesFromCompactClassList() {
@@ -5,17 +5,16 @@
  */
 package de.hpi.swa.trufflesqueak.image;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
-import java.util.HashMap;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.TruffleFile;
@@ -38,14 +37,16 @@ import de.hpi.swa.trufflesqueak.nodes.accessing.AbstractPointersObjectNodes.Abst
 import de.hpi.swa.trufflesqueak.nodes.process.GetActiveProcessNode;
 import de.hpi.swa.trufflesqueak.util.MiscUtils;
 import de.hpi.swa.trufflesqueak.util.ObjectGraphUtils;
-import de.hpi.swa.trufflesqueak.util.UnsafeUtils;
 
 public final class SqueakImageWriter {
+    private static final int BUFFER_SIZE = 4 * 1024 * 1024;
+    private static final byte[] PADDING = new byte[4 * 1024];
+
     private final SqueakImageContext image;
     private final NativeObject freeList;
-    private final BufferedOutputStream stream;
-    private final byte[] byteArrayBuffer = new byte[Long.BYTES];
-    private final HashMap<AbstractSqueakObjectWithClassAndHash, Long> oopMap = new HashMap<>(ObjectGraphUtils.getLastSeenObjects());
+    private final SeekableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final SqueakImageOopMap oopMap = new SqueakImageOopMap(ObjectGraphUtils.getLastSeenObjects());
     private final ArrayList<AbstractSqueakObjectWithClassAndHash> allTracedObjects = new ArrayList<>(ObjectGraphUtils.getLastSeenObjects());
     private final ArrayDeque<AbstractSqueakObjectWithClassAndHash> traceQueue = new ArrayDeque<>();
     private final ArrayList<AbstractSqueakObjectWithClassAndHash> additionalBoxedObjects = new ArrayList<>();
@@ -64,7 +65,7 @@ public final class SqueakImageWriter {
     private SqueakImageWriter(final SqueakImageContext image) throws IOException {
         this.image = image;
         final TruffleFile truffleFile = image.env.getPublicTruffleFile(image.getImagePath());
-        stream = new BufferedOutputStream(truffleFile.newOutputStream());
+        channel = truffleFile.newByteChannel(EnumSet.of(StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING));
         freeList = NativeObject.newNativeLongs(image, image.nilClass /* ignored */, SqueakImageConstants.NUM_FREE_LISTS);
     }
 
@@ -88,20 +89,25 @@ public final class SqueakImageWriter {
         final long start = MiscUtils.currentTimeMillis();
         nextChunk = image.flags.getOldBaseAddress();
         final PointersObject activeProcess = GetActiveProcessNode.getUncached().execute();
+        long traceEnd = start;
         try {
             /* Mark thisContext as suspended during tracing and writing. */
             AbstractPointersObjectWriteNode.getUncached().execute(activeProcess, PROCESS.SUSPENDED_CONTEXT, thisContext);
             traceObjects();
+            traceEnd = MiscUtils.currentTimeMillis();
             writeImageHeader();
             writeBody();
+            flushBuffer();
+            /* Only complete images get a valid header, failed saves are left unpatched. */
+            finalizeImageHeader();
         } finally {
             /* Unmark thisContext as suspended. */
             AbstractPointersObjectWriteNode.getUncached().executeNil(activeProcess, PROCESS.SUSPENDED_CONTEXT);
-            closeStream();
-            finalizeImageHeader();
+            closeChannel();
         }
         final double fileSize = Math.ceil((double) position / 1024 / 1024 * 100) / 100;
-        image.printToStdOut("Image saved in " + (MiscUtils.currentTimeMillis() - start) + "ms (" + fileSize + "MiB).");
+        final long end = MiscUtils.currentTimeMillis();
+        image.printToStdOut("Image saved in " + (end - start) + "ms (" + fileSize + "MiB; trace: " + (traceEnd - start) + "ms, write: " + (end - traceEnd) + "ms).");
     }
 
     private void writeImageHeader() {
@@ -209,19 +215,23 @@ public final class SqueakImageWriter {
      * the image header is written. This updates both values in the header accordingly.
      */
     private void finalizeImageHeader() {
-        final TruffleFile truffleFile = image.env.getPublicTruffleFile(image.getImagePath());
-        assert truffleFile.exists();
+        assert buffer.position() == 0 : "Buffer must be flushed";
+        buffer.putLong(position - SqueakImageConstants.IMAGE_HEADER_SIZE);
         try {
-            final EnumSet<StandardOpenOption> options = EnumSet.of(StandardOpenOption.WRITE, StandardOpenOption.READ);
-            try (SeekableByteChannel channel = truffleFile.newByteChannel(options)) {
-                UnsafeUtils.putLong(byteArrayBuffer, 0, position - SqueakImageConstants.IMAGE_HEADER_SIZE);
-                channel.position(SqueakImageConstants.IMAGE_HEADER_MEMORY_SIZE_POSITION);
-                channel.write(ByteBuffer.wrap(byteArrayBuffer));
-                channel.position(SqueakImageConstants.IMAGE_HEADER_FIRST_FRAGMENT_SIZE_POSITION);
-                channel.write(ByteBuffer.wrap(byteArrayBuffer));
-            }
+            writeBufferAt(SqueakImageConstants.IMAGE_HEADER_MEMORY_SIZE_POSITION);
+            writeBufferAt(SqueakImageConstants.IMAGE_HEADER_FIRST_FRAGMENT_SIZE_POSITION);
         } catch (final IOException e) {
             e.printStackTrace();
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void writeBufferAt(final long filePosition) throws IOException {
+        buffer.flip();
+        channel.position(filePosition);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
         }
     }
 
@@ -244,8 +254,8 @@ public final class SqueakImageWriter {
         } else if (object instanceof Double) {
             return toTaggedSmallFloat((double) object);
         } else if (object instanceof AbstractSqueakObject) {
-            final Long oop = oopMap.get(object);
-            if (oop != null) {
+            final long oop = oopMap.get(object);
+            if (oop != 0) {
                 return oop;
             } else {
                 image.printToStdErr("Unreserved object detected: " + object + ". Replacing with nil.");
@@ -344,47 +354,67 @@ public final class SqueakImageWriter {
     }
 
     public void writeBytes(final byte[] bytes) {
-        try {
-            stream.write(bytes);
-        } catch (final IOException e) {
-            throw SqueakException.create("Failed to write bytes:", e.getMessage());
+        if (bytes.length > buffer.remaining()) {
+            flushBuffer();
+            if (bytes.length > buffer.capacity()) {
+                writeToChannel(ByteBuffer.wrap(bytes));
+                position += bytes.length;
+                return;
+            }
         }
+        buffer.put(bytes);
         position += bytes.length;
     }
 
     public void writeShort(final short value) {
-        UnsafeUtils.putShort(byteArrayBuffer, 0, value);
-        position += writeBytesFromBuffer(Short.BYTES);
+        ensureRemaining(Short.BYTES);
+        buffer.putShort(value);
+        position += Short.BYTES;
     }
 
     public void writeInt(final int value) {
-        UnsafeUtils.putInt(byteArrayBuffer, 0, value);
-        position += writeBytesFromBuffer(Integer.BYTES);
+        ensureRemaining(Integer.BYTES);
+        buffer.putInt(value);
+        position += Integer.BYTES;
     }
 
     public void writeLong(final long value) {
-        UnsafeUtils.putLong(byteArrayBuffer, 0, value);
-        position += writeBytesFromBuffer(Long.BYTES);
+        ensureRemaining(Long.BYTES);
+        buffer.putLong(value);
+        position += Long.BYTES;
     }
 
-    private int writeBytesFromBuffer(final int numberOfBytes) {
-        try {
-            stream.write(byteArrayBuffer, 0, numberOfBytes);
-        } catch (final IOException e) {
-            throw SqueakException.create("Failed to write bytes:", e.getMessage());
+    public void writePadding(final int byteLength) {
+        int remaining = byteLength;
+        while (remaining > 0) {
+            ensureRemaining(1);
+            final int chunkLength = Math.min(Math.min(remaining, buffer.remaining()), PADDING.length);
+            buffer.put(PADDING, 0, chunkLength);
+            remaining -= chunkLength;
         }
-        return numberOfBytes;
+        position += byteLength;
     }
 
-    public void writePadding(final int byteLength) {
+    private void ensureRemaining(final int numberOfBytes) {
+        if (buffer.remaining() < numberOfBytes) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() {
+        buffer.flip();
+        writeToChannel(buffer);
+        buffer.clear();
+    }
+
+    private void writeToChannel(final ByteBuffer source) {
         try {
-            for (int i = 0; i < byteLength; i++) {
-                stream.write(0);
+            while (source.hasRemaining()) {
+                channel.write(source);
             }
         } catch (final IOException e) {
-            throw SqueakException.create("Failed to write padding bytes:", e);
+            throw SqueakException.create("Failed to write bytes:", e.getMessage());
         }
-        position += byteLength;
     }
 
     public void writeObjectHeader(final long numSlots, final long identityHash, final ClassObject classObject, final long formatOffset) {
@@ -468,9 +498,9 @@ public final class SqueakImageWriter {
         }
     }
 
-    private void closeStream() {
+    private void closeChannel() {
         try {
-            stream.close();
+            channel.close();
         } catch (final IOException e) {
             throw SqueakException.create("Failed to close file:", e.getMessage());
         }
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2017-2021 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.trufflesqueak.interop;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleOptions;
+
+import de.hpi.swa.trufflesqueak.util.LogUtils;
+
+/**
+ * A field readable and writable through a {@link JavaObjectWrapper}. Like {@link JavaMethod},
+ * accessors are turned into method handles on first use, and reflection is used in native images
+ * and if no method handle can be created (e.g., for setters of final fields).
+ */
+final class JavaField {
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Field field;
+    private volatile MethodHandle getter;
+    private volatile boolean isGetterResolved;
+    private volatile MethodHandle setter;
+    private volatile boolean isSetterResolved;
+
+    JavaField(final Field field) {
+        this.field = field;
+    }
+
+    @TruffleBoundary
+    Object get(final Object receiver) throws Exception {
+        final MethodHandle target = resolveGetter();
+        if (target == null) {
+            return field.get(receiver);
+        }
+        try {
+            return (Object) target.invokeExact(receiver);
+        } catch (final Exception e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @TruffleBoundary
+    void set(final Object receiver, final Object value) throws Exception {
+        final MethodHandle target = resolveSetter();
+        if (target == null) {
+            field.set(receiver, value);
+            return;
+        }
+        try {
+            target.invokeExact(receiver, value);
+        } catch (final Exception e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private MethodHandle resolveGetter() {
+        if (!isGetterResolved) {
+            if (!TruffleOptions.AOT) {
+                try {
+                    getter = adapt(MethodHandles.lookup().unreflectGetter(field), GETTER_TYPE);
+                } catch (final IllegalAccessException | RuntimeException e) {
+                    LogUtils.HOST_INTEROP.fine(() -> "Unable to create getter for " + field + "\n" + e);
+                }
+            }
+            isGetterResolved = true;
+        }
+        return getter;
+    }
+
+    private MethodHandle resolveSetter() {
+        if (!isSetterResolved) {
+            if (!TruffleOptions.AOT) {
+                try {
+                    setter = adapt(MethodHandles.lookup().unreflectSetter(field), SETTER_TYPE);
+                } catch (final IllegalAccessException | RuntimeException e) {
+                    LogUtils.HOST_INTEROP.fine(() -> "Unable to create setter for " + field + "\n" + e);
+                }
+            }
+            isSetterResolved = true;
+        }
+        return setter;
+    }
+
+    private MethodHandle adapt(final MethodHandle accessor, final MethodType type) {
+        final MethodHandle target = Modifier.isStatic(field.getModifiers()) ? MethodHandles.dropArguments(accessor, 0, Object.class) : accessor;
+        return target.asType(type);
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2017-2021 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.trufflesqueak.interop;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleOptions;
+
+import de.hpi.swa.trufflesqueak.model.NilObject;
+import de.hpi.swa.trufflesqueak.util.LogUtils;
+
+/**
+ * A method invocable through a {@link JavaObjectWrapper}. On first use, the method is turned into a
+ * method handle of type {@code (Object, Object[])Object}, which avoids the argument checks and
+ * accessor dispatch of {@link Method#invoke}. Falls back to reflection in native images and if no
+ * method handle can be created.
+ * <p>
+ * Arguments are converted from their TruffleSqueak representation: wrappers are unwrapped, nil
+ * becomes {@code null}, and longs and doubles are narrowed to smaller primitive parameter types.
+ */
+final class JavaMethod {
+    /* Costs of passing an argument, used to choose between overloads. */
+    private static final int COST_EXACT = 0;
+    private static final int COST_SUBTYPE = 1;
+    private static final int COST_OBJECT = 2;
+    private static final int COST_CONVERSION = 3;
+    private static final int NOT_APPLICABLE = -1;
+
+    private final Method method;
+    private final Class<?>[] parameterTypes;
+    /* Parameter types with primitive types replaced by their wrapper types. */
+    private final Class<?>[] boxedParameterTypes;
+    private volatile MethodHandle handle;
+    private volatile boolean isResolved;
+
+    JavaMethod(final Method method) {
+        this.method = method;
+        parameterTypes = method.getParameterTypes();
+        boxedParameterTypes = new Class<?>[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            boxedParameterTypes[i] = MethodType.methodType(parameterTypes[i]).wrap().returnType();
+        }
+    }
+
+    int getParameterCount() {
+        return parameterTypes.length;
+    }
+
+    boolean hasSameParameterTypes(final Method other) {
+        final Class<?>[] otherParameterTypes = other.getParameterTypes();
+        if (otherParameterTypes.length != parameterTypes.length) {
+            return false;
+        }
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (otherParameterTypes[i] != parameterTypes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* Class of an argument after conversion, null for nil. */
+    static Class<?> argumentClassOf(final Object argument) {
+        if (argument instanceof JavaObjectWrapper) {
+            return ((JavaObjectWrapper) argument).getWrappedClass();
+        } else if (argument == NilObject.SINGLETON) {
+            return null;
+        } else {
+            return argument.getClass();
+        }
+    }
+
+    /**
+     * Answers how well arguments of the given classes fit the parameters, lower is better.
+     *
+     * @return the cost of the call, or a negative value if the method is not applicable
+     */
+    int matchCost(final Class<?>[] argumentClasses) {
+        assert argumentClasses.length == parameterTypes.length;
+        int cost = 0;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            final int argumentCost = argumentCost(i, argumentClasses[i]);
+            if (argumentCost == NOT_APPLICABLE) {
+                return NOT_APPLICABLE;
+            }
+            cost += argumentCost;
+        }
+        return cost;
+    }
+
+    private int argumentCost(final int index, final Class<?> argumentClass) {
+        final Class<?> parameterType = parameterTypes[index];
+        if (argumentClass == null) {
+            /* Prefer Object parameters for nil, there is nothing more specific to go by. */
+            if (parameterType.isPrimitive()) {
+                return NOT_APPLICABLE;
+            }
+            return parameterType == Object.class ? COST_SUBTYPE : COST_OBJECT;
+        } else if (boxedParameterTypes[index] == argumentClass) {
+            return COST_EXACT;
+        } else if (parameterType.isPrimitive()) {
+            return isConvertible(parameterType, argumentClass) ? COST_CONVERSION : NOT_APPLICABLE;
+        } else if (parameterType.isAssignableFrom(argumentClass)) {
+            return parameterType == Object.class ? COST_OBJECT : COST_SUBTYPE;
+        } else {
+            return NOT_APPLICABLE;
+        }
+    }
+
+    private static boolean isConvertible(final Class<?> parameterType, final Class<?> argumentClass) {
+        if (argumentClass == Long.class) {
+            return parameterType == int.class || parameterType == short.class || parameterType == byte.class || parameterType == double.class || parameterType == float.class;
+        } else if (argumentClass == Double.class) {
+            return parameterType == float.class;
+        } else {
+            return false;
+        }
+    }
+
+    /** Behaves like {@link Method#invoke}, except that exceptions of the callee may be unwrapped. */
+    @TruffleBoundary
+    Object invoke(final Object receiver, final Object[] arguments) throws Exception {
+        final Object[] convertedArguments = convertArguments(arguments);
+        final MethodHandle target = resolve();
+        if (target == null) {
+            return method.invoke(receiver, convertedArguments);
+        }
+        try {
+            return (Object) target.invokeExact(receiver, convertedArguments);
+        } catch (final Exception e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    private Object[] convertArguments(final Object[] arguments) {
+        if (arguments.length != parameterTypes.length) {
+            throw new IllegalArgumentException("Wrong number of arguments");
+        }
+        Object[] result = arguments;
+        for (int i = 0; i < arguments.length; i++) {
+            final Object converted = convertArgument(parameterTypes[i], arguments[i]);
+            if (converted != arguments[i]) {
+                if (result == arguments) {
+                    result = arguments.clone();
+                }
+                result[i] = converted;
+            }
+        }
+        return result;
+    }
+
+    private static Object convertArgument(final Class<?> parameterType, final Object argument) {
+        if (argument instanceof JavaObjectWrapper) {
+            return ((JavaObjectWrapper) argument).unwrap();
+        } else if (argument == NilObject.SINGLETON) {
+            return parameterType.isPrimitive() ? argument : null;
+        } else if (argument instanceof Long && parameterType.isPrimitive() && parameterType != long.class) {
+            final long value = (long) argument;
+            if (parameterType == int.class && (int) value == value) {
+                return (int) value;
+            } else if (parameterType == short.class && (short) value == value) {
+                return (short) value;
+            } else if (parameterType == byte.class && (byte) value == value) {
+                return (byte) value;
+            } else if (parameterType == double.class) {
+                return (double) value;
+            } else if (parameterType == float.class) {
+                return (float) value;
+            }
+        } else if (argument instanceof Double && parameterType == float.class) {
+            return (float) (double) argument;
+        }
+        return argument;
+    }
+
+    private MethodHandle resolve() {
+        if (!isResolved) {
+            if (!TruffleOptions.AOT) {
+                try {
+                    handle = createHandle(method);
+                } catch (final IllegalAccessException | RuntimeException e) {
+                    LogUtils.HOST_INTEROP.fine(() -> "Unable to create method handle for " + method + "\n" + e);
+                }
+            }
+            isResolved = true;
+        }
+        return handle;
+    }
+
+    private static MethodHandle createHandle(final Method method) throws IllegalAccessException {
+        MethodHandle target = MethodHandles.lookup().unreflect(method).asFixedArity();
+        if (Modifier.isStatic(method.getModifiers())) {
+            target = MethodHandles.dropArguments(target, 0, Object.class); // Ignore receiver.
+        }
+        final int numArguments = method.getParameterCount();
+        return target.asType(MethodType.genericMethodType(1 + numArguments)).asSpreader(Object[].class, numArguments);
+    }
+}
@@ -13,8 +13,9 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.TreeSet;
-import java.util.WeakHashMap;
 
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
@@ -38,6 +39,7 @@ import com.oracle.truffle.api.library.CachedLibrary;
 import com.oracle.truffle.api.library.ExportLibrary;
 import com.oracle.truffle.api.library.ExportMessage;
 import com.oracle.truffle.api.nodes.LanguageInfo;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
 import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.api.source.SourceSection;
 
@@ -66,12 +68,12 @@ import de.hpi.swa.trufflesqueak.util.LogUtils;
 @ExportLibrary(InteropLibrary.class)
 public final class JavaObjectWrapper implements TruffleObject {
     protected static final int LIMIT = 2;
-    private static final WeakHashMap<Object, JavaObjectWrapper> CACHE = new WeakHashMap<>();
-    private static final ClassValue<HashMap<String, Field>> CLASSES_TO_FIELDS = new ClassValue<HashMap<String, Field>>() {
+    private static final JavaObjectWrapperCache CACHE = new JavaObjectWrapperCache();
+    private static final ClassValue<HashMap<String, JavaField>> CLASSES_TO_FIELDS = new ClassValue<HashMap<String, JavaField>>() {
         @Override
         @SuppressWarnings("deprecation") // isAccessible deprecated in Java 11
-        protected HashMap<String, Field> computeValue(final Class<?> type) {
-            final HashMap<String, Field> result = new HashMap<>();
+        protected HashMap<String, JavaField> computeValue(final Class<?> type) {
+            final HashMap<String, JavaField> result = new HashMap<>();
             Class<?> currentClass = type;
             while (currentClass != null) {
                 for (final Field field : currentClass.getDeclaredFields()) {
@@ -88,7 +90,7 @@ public final class JavaObjectWrapper implements TruffleObject {
                     }
                     final String name = field.getName();
                     if (name.indexOf('$') < 0) {
-                        result.put(field.getName(), field);
+                        result.put(field.getName(), new JavaField(field));
                     }
                 }
                 currentClass = currentClass.getSuperclass();
@@ -101,15 +103,15 @@ public final class JavaObjectWrapper implements TruffleObject {
             return "Class".equals(simpleName) || "SubstrateTruffleRuntime".equals(simpleName) || "GraalTruffleRuntime".equals(simpleName);
         }
     };
-    private static final ClassValue<HashMap<String, Method>> CLASSES_TO_METHODS = new ClassValue<HashMap<String, Method>>() {
+    private static final ClassValue<HashMap<String, JavaOverloads>> CLASSES_TO_METHODS = new ClassValue<HashMap<String, JavaOverloads>>() {
         @Override
         @SuppressWarnings("deprecation") // isAccessible deprecated in Java 11
-        protected HashMap<String, Method> computeValue(final Class<?> type) {
-            final HashMap<String, Method> result = new HashMap<>();
+        protected HashMap<String, JavaOverloads> computeValue(final Class<?> type) {
+            final HashMap<String, List<JavaMethod>> methodsByName = new HashMap<>();
             Class<?> currentClass = type;
             while (currentClass != null) {
-                for (final Method method : currentClass.getDeclaredMethods()) {
-                    if (TruffleOptions.AOT && ignoredForAOT(method)) {
+                iterateMethods: for (final Method method : currentClass.getDeclaredMethods()) {
+                    if (method.isBridge() || TruffleOptions.AOT && ignoredForAOT(method)) {
                         continue;
                     }
                     if (!method.isAccessible()) {
@@ -122,11 +124,21 @@ public final class JavaObjectWrapper implements TruffleObject {
                     }
                     final String name = method.getName();
                     if (name.indexOf('$') < 0) {
-                        result.put(method.getName(), method);
+                        final List<JavaMethod> overloads = methodsByName.computeIfAbsent(name, n -> new ArrayList<>());
+                        for (final JavaMethod overload : overloads) {
+                            if (overload.hasSameParameterTypes(method)) {
+                                continue iterateMethods; // Overridden in a subclass.
+                            }
+                        }
+                        overloads.add(new JavaMethod(method));
                     }
                 }
                 currentClass = currentClass.getSuperclass();
             }
+            final HashMap<String, JavaOverloads> result = new HashMap<>(methodsByName.size());
+            for (final Map.Entry<String, List<JavaMethod>> entry : methodsByName.entrySet()) {
+                result.put(entry.getKey(), new JavaOverloads(entry.getValue()));
+            }
             return result;
         }
 
@@ -219,20 +231,60 @@ public final class JavaObjectWrapper implements TruffleObject {
         } else if (object instanceof Float) {
             return (double) (float) object;
         } else {
-            return CACHE.computeIfAbsent(object, o -> new JavaObjectWrapper(o));
+            return CACHE.get(object, JavaObjectWrapper::new);
         }
     }
 
     @TruffleBoundary
-    private HashMap<String, Field> lookupFields() {
+    private HashMap<String, JavaField> lookupFields() {
         return CLASSES_TO_FIELDS.get(wrappedObject.getClass());
     }
 
     @TruffleBoundary
-    private HashMap<String, Method> lookupMethods() {
+    private HashMap<String, JavaOverloads> lookupMethods() {
         return CLASSES_TO_METHODS.get(wrappedObject.getClass());
     }
 
+    @TruffleBoundary
+    protected static final JavaField lookupField(final Class<?> type, final String member) {
+        return CLASSES_TO_FIELDS.get(type).get(member);
+    }
+
+    @TruffleBoundary
+    protected static final JavaMethod lookupMethod(final Class<?> type, final String member, final Class<?>[] argumentClasses) {
+        final JavaOverloads overloads = CLASSES_TO_METHODS.get(type).get(member);
+        return overloads == null ? null : overloads.select(argumentClasses);
+    }
+
+    protected static final Class<?>[] getArgumentClasses(final Object[] arguments) {
+        final Class<?>[] argumentClasses = new Class<?>[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            argumentClasses[i] = JavaMethod.argumentClassOf(arguments[i]);
+        }
+        return argumentClasses;
+    }
+
+    @ExplodeLoop
+    protected static final boolean argumentClassesMatch(final Class<?>[] argumentClasses, final Object[] arguments) {
+        if (argumentClasses.length != arguments.length) {
+            return false;
+        }
+        for (int i = 0; i < argumentClasses.length; i++) {
+            if (JavaMethod.argumentClassOf(arguments[i]) != argumentClasses[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected Class<?> getWrappedClass() {
+        return wrappedObject.getClass();
+    }
+
+    protected Object unwrap() {
+        return wrappedObject;
+    }
+
     @TruffleBoundary
     private InteropArray lookupMembers() {
         return CLASSES_TO_MEMBERS.get(wrappedObject.getClass());
@@ -273,18 +325,32 @@ public final class JavaObjectWrapper implements TruffleObject {
         return "JavaObject[" + wrappedObject.getClass().getName() + "]";
     }
 
+    /* Fields and methods are cached per receiver class and member name, avoiding lookups on each access. */
     @ExportMessage
-    @TruffleBoundary
-    protected Object readMember(final String member) throws UnknownIdentifierException {
-        final Field field = lookupFields().get(member);
-        if (field != null) {
-            try {
-                return wrap(field.get(wrappedObject));
-            } catch (final Exception e) {
+    protected static class ReadMember {
+        @Specialization(guards = {"receiver.getWrappedClass() == cachedClass", "cachedMember.equals(member)"}, limit = "LIMIT")
+        protected static final Object doCached(final JavaObjectWrapper receiver, @SuppressWarnings("unused") final String member,
+                        @SuppressWarnings("unused") @Cached("receiver.getWrappedClass()") final Class<?> cachedClass,
+                        @Cached("member") final String cachedMember,
+                        @Cached("lookupField(cachedClass, cachedMember)") final JavaField cachedField) throws UnknownIdentifierException {
+            return read(receiver, cachedMember, cachedField);
+        }
+
+        @Specialization(replaces = "doCached")
+        protected static final Object doUncached(final JavaObjectWrapper receiver, final String member) throws UnknownIdentifierException {
+            return read(receiver, member, lookupField(receiver.getWrappedClass(), member));
+        }
+
+        private static Object read(final JavaObjectWrapper receiver, final String member, final JavaField field) throws UnknownIdentifierException {
+            if (field != null) {
+                try {
+                    return wrap(field.get(receiver.wrappedObject));
+                } catch (final Exception e) {
+                    throw UnknownIdentifierException.create(member);
+                }
+            } else {
                 throw UnknownIdentifierException.create(member);
             }
-        } else {
-            throw UnknownIdentifierException.create(member);
         }
     }
 
@@ -316,34 +382,82 @@ public final class JavaObjectWrapper implements TruffleObject {
         return lookupMethods().containsKey(member);
     }
 
+    /* Overloads are additionally selected once per combination of argument classes. */
     @ExportMessage
-    @TruffleBoundary
-    protected Object invokeMember(final String member, final Object... arguments) throws UnknownIdentifierException, UnsupportedTypeException {
-        final Method method = lookupMethods().get(member);
-        if (method != null) {
-            try {
-                return wrap(method.invoke(wrappedObject, arguments));
-            } catch (final Exception e) {
+    protected static class InvokeMember {
+        @Specialization(guards = {"receiver.getWrappedClass() == cachedClass", "cachedMember.equals(member)", "argumentClassesMatch(cachedArgumentClasses, arguments)"}, limit = "LIMIT")
+        protected static final Object doCached(final JavaObjectWrapper receiver, @SuppressWarnings("unused") final String member, final Object[] arguments,
+                        @SuppressWarnings("unused") @Cached("receiver.getWrappedClass()") final Class<?> cachedClass,
+                        @Cached("member") final String cachedMember,
+                        @Cached(value = "getArgumentClasses(arguments)", dimensions = 1) final Class<?>[] cachedArgumentClasses,
+                        @Cached("lookupMethod(cachedClass, cachedMember, cachedArgumentClasses)") final JavaMethod cachedMethod)
+                        throws UnknownIdentifierException, ArityException, UnsupportedTypeException {
+            return invoke(receiver, cachedMember, cachedMethod, arguments);
+        }
+
+        @Specialization(replaces = "doCached")
+        protected static final Object doUncached(final JavaObjectWrapper receiver, final String member, final Object[] arguments)
+                        throws UnknownIdentifierException, ArityException, UnsupportedTypeException {
+            return invoke(receiver, member, lookupMethod(receiver.getWrappedClass(), member, getArgumentClasses(arguments)), arguments);
+        }
+
+        private static Object invoke(final JavaObjectWrapper receiver, final String member, final JavaMethod method, final Object[] arguments)
+                        throws UnknownIdentifierException, ArityException, UnsupportedTypeException {
+            if (method != null) {
+                try {
+                    return wrap(method.invoke(receiver.wrappedObject, arguments));
+                } catch (final Exception e) {
+                    throw UnsupportedTypeException.create(arguments);
+                }
+            } else {
+                return throwUnresolved(receiver, member, arguments);
+            }
+        }
+
+        @TruffleBoundary
+        private static Object throwUnresolved(final JavaObjectWrapper receiver, final String member, final Object[] arguments)
+                        throws UnknownIdentifierException, ArityException, UnsupportedTypeException {
+            final JavaOverloads overloads = receiver.lookupMethods().get(member);
+            if (overloads == null) {
+                throw UnknownIdentifierException.create(member);
+            } else if (!overloads.hasArity(arguments.length)) {
+                throw ArityException.create(overloads.getMinArity(), overloads.getMaxArity(), arguments.length);
+            } else {
                 throw UnsupportedTypeException.create(arguments);
             }
-        } else {
-            throw UnknownIdentifierException.create(member);
         }
     }
 
     @ExportMessage
-    @TruffleBoundary
-    @SuppressWarnings("deprecation") // isAccessible deprecated in Java 11
-    protected void writeMember(final String key, final Object value) {
-        final Field field = lookupFields().get(key);
-        if (field != null) {
-            try {
-                field.set(wrappedObject, value instanceof JavaObjectWrapper ? ((JavaObjectWrapper) value).wrappedObject : value);
-            } catch (final Exception e) {
-                throw new UnsupportedOperationException(e);
+    protected static class WriteMember {
+        @Specialization(guards = {"receiver.getWrappedClass() == cachedClass", "cachedMember.equals(member)"}, limit = "LIMIT")
+        protected static final void doCached(final JavaObjectWrapper receiver, @SuppressWarnings("unused") final String member, final Object value,
+                        @SuppressWarnings("unused") @Cached("receiver.getWrappedClass()") final Class<?> cachedClass,
+                        @Cached("member") final String cachedMember,
+                        @Cached("lookupField(cachedClass, cachedMember)") final JavaField cachedField) {
+            write(receiver, cachedMember, cachedField, value);
+        }
+
+        @Specialization(replaces = "doCached")
+        protected static final void doUncached(final JavaObjectWrapper receiver, final String member, final Object value) {
+            write(receiver, member, lookupField(receiver.getWrappedClass(), member), value);
+        }
+
+        private static void write(final JavaObjectWrapper receiver, final String member, final JavaField field, final Object value) {
+            if (field != null) {
+                try {
+                    field.set(receiver.wrappedObject, value instanceof JavaObjectWrapper ? ((JavaObjectWrapper) value).wrappedObject : value);
+                } catch (final Exception e) {
+                    throw new UnsupportedOperationException(e);
+                }
+            } else {
+                throw unknownMember(receiver, member);
             }
-        } else {
-            throw new UnsupportedOperationException(wrappedObject + " has not member " + key);
+        }
+
+        @TruffleBoundary
+        private static UnsupportedOperationException unknownMember(final JavaObjectWrapper receiver, final String member) {
+            return new UnsupportedOperationException(receiver.wrappedObject + " has not member " + member);
         }
     }
 
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2017-2021 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.trufflesqueak.interop;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Maps Java objects to their {@link JavaObjectWrapper} by identity, so that wrapping the same object
+ * twice answers the same wrapper. Wrappers are referenced weakly. Because a wrapper references its
+ * object, keying on weak references to the objects (as a WeakHashMap would) kept all entries alive.
+ * Instead, entries are dropped once their wrapper has been collected, which releases the object.
+ * Safe for concurrent use.
+ */
+final class JavaObjectWrapperCache {
+    private final ConcurrentHashMap<IdentityKey, WrapperReference> map = new ConcurrentHashMap<>();
+    private final ReferenceQueue<JavaObjectWrapper> queue = new ReferenceQueue<>();
+
+    JavaObjectWrapper get(final Object object, final Function<Object, JavaObjectWrapper> factory) {
+        expungeStaleEntries();
+        final IdentityKey key = new IdentityKey(object);
+        final WrapperReference existing = map.get(key);
+        final JavaObjectWrapper existingWrapper = existing == null ? null : existing.get();
+        if (existingWrapper != null) {
+            return existingWrapper;
+        }
+        final JavaObjectWrapper[] result = new JavaObjectWrapper[1];
+        map.compute(key, (k, reference) -> {
+            final JavaObjectWrapper current = reference == null ? null : reference.get();
+            if (current != null) {
+                result[0] = current;
+                return reference;
+            }
+            result[0] = factory.apply(object);
+            return new WrapperReference(result[0], k, queue);
+        });
+        return result[0];
+    }
+
+    private void expungeStaleEntries() {
+        WrapperReference reference;
+        while ((reference = (WrapperReference) queue.poll()) != null) {
+            map.remove(reference.key, reference);
+        }
+    }
+
+    private static final class IdentityKey {
+        private final Object object;
+        private final int hash;
+
+        private IdentityKey(final Object object) {
+            this.object = object;
+            hash = System.identityHashCode(object);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof IdentityKey && ((IdentityKey) other).object == object;
+        }
+    }
+
+    private static final class WrapperReference extends WeakReference<JavaObjectWrapper> {
+        private final IdentityKey key;
+
+        private WrapperReference(final JavaObjectWrapper wrapper, final IdentityKey key, final ReferenceQueue<JavaObjectWrapper> queue) {
+            super(wrapper, queue);
+            this.key = key;
+        }
+    }
+}
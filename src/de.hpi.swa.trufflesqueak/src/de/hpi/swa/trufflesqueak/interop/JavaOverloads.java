@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2017-2021 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.trufflesqueak.interop;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The methods of a class that share a name, indexed by arity. Overloads of the same arity are
+ * chosen by the classes of the arguments, preferring exact matches over subtypes, {@code Object}
+ * parameters, and primitive conversions, in that order. Ties go to the method found first, that is,
+ * to the one declared in the most specific class.
+ */
+final class JavaOverloads {
+    private static final JavaMethod[] NO_METHODS = new JavaMethod[0];
+
+    private final JavaMethod[][] methodsByArity;
+    private final int minArity;
+
+    JavaOverloads(final List<JavaMethod> methods) {
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (final JavaMethod method : methods) {
+            min = Math.min(min, method.getParameterCount());
+            max = Math.max(max, method.getParameterCount());
+        }
+        minArity = min;
+        methodsByArity = new JavaMethod[max + 1][];
+        for (int arity = 0; arity <= max; arity++) {
+            final List<JavaMethod> candidates = new ArrayList<>();
+            for (final JavaMethod method : methods) {
+                if (method.getParameterCount() == arity) {
+                    candidates.add(method);
+                }
+            }
+            methodsByArity[arity] = candidates.isEmpty() ? NO_METHODS : candidates.toArray(NO_METHODS);
+        }
+    }
+
+    int getMinArity() {
+        return minArity;
+    }
+
+    int getMaxArity() {
+        return methodsByArity.length - 1;
+    }
+
+    boolean hasArity(final int arity) {
+        return arity < methodsByArity.length && methodsByArity[arity].length > 0;
+    }
+
+    /**
+     * Selects the overload to call with arguments of the given classes ({@code null} for nil).
+     *
+     * @return the best applicable method, or {@code null} if there is none
+     */
+    JavaMethod select(final Class<?>[] argumentClasses) {
+        if (argumentClasses.length >= methodsByArity.length) {
+            return null;
+        }
+        final JavaMethod[] candidates = methodsByArity[argumentClasses.length];
+        JavaMethod best = null;
+        int bestCost = Integer.MAX_VALUE;
+        for (final JavaMethod candidate : candidates) {
+            final int cost = candidate.matchCost(argumentClasses);
+            if (0 <= cost && cost < bestCost) {
+                best = candidate;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+}
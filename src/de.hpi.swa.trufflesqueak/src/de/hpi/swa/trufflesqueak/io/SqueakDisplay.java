@@ -75,6 +75,8 @@ public final class SqueakDisplay implements SqueakDisplayInterface {
     private Dimension rememberedWindowSize;
     private Point rememberedWindowLocation;
     private boolean deferUpdates;
+    /* Presents damage on a separate thread, null if damage is painted immediately. */
+    private SqueakDisplayRenderer renderer;
 
     static {
         tryToSetTaskbarIcon();
@@ -138,7 +140,7 @@ public final class SqueakDisplay implements SqueakDisplayInterface {
 
     private static final class Canvas extends Component {
         private static final long serialVersionUID = 1L;
-        private BufferedImage bufferedImage;
+        private volatile BufferedImage bufferedImage;
 
         private Canvas() {
             /* Drawing is very simple, so double buffering is not needed. */
@@ -191,7 +193,7 @@ public final class SqueakDisplay implements SqueakDisplayInterface {
     @TruffleBoundary
     public void showDisplayBitsLeftTopRightBottom(final PointersObject destForm, final int left, final int top, final int right, final int bottom) {
         if (left < right && top < bottom && !deferUpdates && destForm.isDisplay(image)) {
-            canvas.paintImmediately(left, top, right, bottom);
+            show(left, top, right, bottom);
         }
     }
 
@@ -199,12 +201,24 @@ public final class SqueakDisplay implements SqueakDisplayInterface {
     @TruffleBoundary
     public void showDisplayRect(final int left, final int right, final int top, final int bottom) {
         assert left < right && top < bottom;
-        canvas.paintImmediately(left, top, right, bottom);
+        show(left, top, right, bottom);
+    }
+
+    private void show(final int left, final int top, final int right, final int bottom) {
+        if (renderer != null) {
+            renderer.addDamage(left, top, right, bottom);
+        } else {
+            canvas.paintImmediately(left, top, right, bottom);
+        }
     }
 
     @Override
     @TruffleBoundary
     public void close() {
+        if (renderer != null) {
+            renderer.shutdown();
+            renderer = null;
+        }
         frame.setVisible(false);
         frame.dispose();
     }
@@ -261,6 +275,9 @@ public final class SqueakDisplay implements SqueakDisplayInterface {
     @TruffleBoundary
     public void open(final PointersObject sqDisplay) {
         canvas.setSqueakDisplay(sqDisplay);
+        if (renderer == null && image.options.displayFrameInterval > 0) {
+            renderer = new SqueakDisplayRenderer(canvas::paintImmediately, image.options.displayFrameInterval);
+        }
         // Set or update frame title.
         final String imageFileName = new File(image.getImagePath()).getName();
         // Avoid name duplication in frame title.
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2017-2021 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.trufflesqueak.io;
+
+import java.util.concurrent.TimeUnit;
+
+import de.hpi.swa.trufflesqueak.util.LogUtils;
+
+/**
+ * Collects the damage reported by the image and presents it on a separate thread, at most once per
+ * frame interval. Morphic reports many small rectangles per cycle, so instead of painting each one
+ * immediately, rectangles are merged with overlapping, adjacent, or nearby damage until presented.
+ * If more than {@link #MAX_RECTANGLES} disjoint rectangles accumulate, the new one is merged with
+ * the rectangle it grows the least. Frame times are logged to the {@code io} logger.
+ */
+final class SqueakDisplayRenderer implements Runnable {
+    private static final String RENDERER_THREAD_NAME = "TruffleSqueakDisplayRenderer";
+    private static final int MAX_RECTANGLES = 16;
+    private static final long STATISTICS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    @FunctionalInterface
+    interface Painter {
+        void paint(int left, int top, int right, int bottom);
+
+        default void endFrame() {
+        }
+    }
+
+    private final Painter painter;
+    private final long frameIntervalNanos;
+
+    /* Pending damage as left, top, right, bottom quadruples. */
+    private final int[] damage = new int[MAX_RECTANGLES * 4];
+    private int numDamaged;
+    private final int[] presenting = new int[MAX_RECTANGLES * 4];
+    private Thread thread;
+    private boolean isShutdown;
+    private long lastPresentNanos;
+
+    /* Frame statistics, reset whenever they are logged. Only accessed by the renderer thread. */
+    private long statisticsStartNanos;
+    private long numFrames;
+    private long numPresentedRectangles;
+    private long totalFrameNanos;
+    private long maxFrameNanos;
+    /* Counted under the lock. */
+    private long numReportedRectangles;
+
+    SqueakDisplayRenderer(final Painter painter, final long frameIntervalMillis) {
+        this.painter = painter;
+        frameIntervalNanos = TimeUnit.MILLISECONDS.toNanos(frameIntervalMillis);
+    }
+
+    synchronized void addDamage(final int left, final int top, final int right, final int bottom) {
+        if (isShutdown) {
+            return;
+        }
+        numReportedRectangles++;
+        if (mergeIntoDamage(left, top, right, bottom)) {
+            return;
+        }
+        if (numDamaged == 0) {
+            ensureThreadStarted();
+            notifyAll();
+        }
+        setRectangle(damage, numDamaged++, left, top, right, bottom);
+    }
+
+    synchronized void shutdown() {
+        isShutdown = true;
+        numDamaged = 0;
+        notifyAll();
+    }
+
+    private void ensureThreadStarted() {
+        if (thread == null) {
+            thread = new Thread(this, RENDERER_THREAD_NAME);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Merges the rectangle into pending damage if it is close enough to some of it or if there is no
+     * room for another rectangle.
+     *
+     * @return false if the rectangle needs to be added separately
+     */
+    private boolean mergeIntoDamage(final int left, final int top, final int right, final int bottom) {
+        int cheapestIndex = -1;
+        long cheapestGrowth = Long.MAX_VALUE;
+        for (int i = 0; i < numDamaged; i++) {
+            final int offset = i * 4;
+            final long growth = unionArea(damage, offset, left, top, right, bottom) - area(damage[offset], damage[offset + 1], damage[offset + 2], damage[offset + 3]);
+            if (growth < cheapestGrowth) {
+                cheapestGrowth = growth;
+                cheapestIndex = i;
+            }
+        }
+        if (cheapestIndex < 0) {
+            return false;
+        }
+        final long slack = area(left, top, right, bottom) * 5 / 4;
+        if (cheapestGrowth > slack && numDamaged < MAX_RECTANGLES) {
+            return false;
+        }
+        final int offset = cheapestIndex * 4;
+        setRectangle(damage, cheapestIndex, Math.min(damage[offset], left), Math.min(damage[offset + 1], top), Math.max(damage[offset + 2], right), Math.max(damage[offset + 3], bottom));
+        absorbCoveredDamage(cheapestIndex);
+        return true;
+    }
+
+    /* Removes rectangles covered by the grown rectangle at the given index. */
+    private void absorbCoveredDamage(final int index) {
+        int target = index;
+        int i = 0;
+        while (i < numDamaged) {
+            if (i != target && contains(damage, target * 4, damage, i * 4)) {
+                final int last = numDamaged - 1;
+                System.arraycopy(damage, last * 4, damage, i * 4, 4);
+                if (target == last) {
+                    target = i;
+                }
+                numDamaged--;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        statisticsStartNanos = System.nanoTime();
+        while (true) {
+            final int numRectangles;
+            try {
+                synchronized (this) {
+                    while (numDamaged == 0 && !isShutdown) {
+                        wait();
+                    }
+                }
+                /* Let damage of the current cycle accumulate until the next frame is due. */
+                final long delayNanos = lastPresentNanos + frameIntervalNanos - System.nanoTime();
+                if (delayNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(delayNanos);
+                }
+                synchronized (this) {
+                    if (isShutdown) {
+                        return;
+                    }
+                    numRectangles = numDamaged;
+                    System.arraycopy(damage, 0, presenting, 0, numRectangles * 4);
+                    numDamaged = 0;
+                }
+            } catch (final InterruptedException e) {
+                return;
+            }
+            present(numRectangles);
+        }
+    }
+
+    private void present(final int numRectangles) {
+        final long startNanos = System.nanoTime();
+        for (int i = 0; i < numRectangles; i++) {
+            final int offset = i * 4;
+            painter.paint(presenting[offset], presenting[offset + 1], presenting[offset + 2], presenting[offset + 3]);
+        }
+        painter.endFrame();
+        final long endNanos = System.nanoTime();
+        lastPresentNanos = endNanos;
+        final long frameNanos = endNanos - startNanos;
+        numFrames++;
+        numPresentedRectangles += numRectangles;
+        totalFrameNanos += frameNanos;
+        maxFrameNanos = Math.max(maxFrameNanos, frameNanos);
+        if (endNanos - statisticsStartNanos >= STATISTICS_INTERVAL_NANOS) {
+            logStatistics(endNanos);
+        }
+    }
+
+    private void logStatistics(final long nowNanos) {
+        final long numReported;
+        synchronized (this) {
+            numReported = numReportedRectangles;
+            numReportedRectangles = 0;
+        }
+        final long frames = numFrames;
+        final long presented = numPresentedRectangles;
+        final double averageMillis = totalFrameNanos / 1e6 / frames;
+        final double maxMillis = maxFrameNanos / 1e6;
+        final double seconds = (nowNanos - statisticsStartNanos) / 1e9;
+        LogUtils.IO.fine(() -> String.format("Display: %d frames in %.1fs, %d damage rectangles presented as %d, frame time avg %.2fms, max %.2fms",
+                        frames, seconds, numReported, presented, averageMillis, maxMillis));
+        statisticsStartNanos = nowNanos;
+        numFrames = 0;
+        numPresentedRectangles = 0;
+        totalFrameNanos = 0;
+        maxFrameNanos = 0;
+    }
+
+    private static void setRectangle(final int[] rectangles, final int index, final int left, final int top, final int right, final int bottom) {
+        final int offset = index * 4;
+        rectangles[offset] = left;
+        rectangles[offset + 1] = top;
+        rectangles[offset + 2] = right;
+        rectangles[offset + 3] = bottom;
+    }
+
+    private static long area(final int left, final int top, final int right, final int bottom) {
+        return (long) (right - left) * (bottom - top);
+    }
+
+    private static long unionArea(final int[] rectangles, final int offset, final int left, final int top, final int right, final int bottom) {
+        return area(Math.min(rectangles[offset], left), Math.min(rectangles[offset + 1], top), Math.max(rectangles[offset + 2], right), Math.max(rectangles[offset + 3], bottom));
+    }
+
+    private static boolean contains(final int[] outer, final int outerOffset, final int[] inner, final int innerOffset) {
+        return outer[outerOffset] <= inner[innerOffset] && outer[outerOffset + 1] <= inner[innerOffset + 1] && inner[innerOffset + 2] <= outer[outerOffset + 2] &&
+                        inner[innerOffset + 3] <= outer[outerOffset + 3];
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2017-2021 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.trufflesqueak.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.logging.Level;
+import java.util.zip.Deflater;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+import de.hpi.swa.trufflesqueak.exceptions.SqueakExceptions.SqueakException;
+import de.hpi.swa.trufflesqueak.image.SqueakImageContext;
+import de.hpi.swa.trufflesqueak.model.NativeObject;
+import de.hpi.swa.trufflesqueak.model.PointersObject;
+import de.hpi.swa.trufflesqueak.model.layout.ObjectLayouts.FORM;
+import de.hpi.swa.trufflesqueak.nodes.accessing.AbstractPointersObjectNodes.AbstractPointersObjectReadNode;
+import de.hpi.swa.trufflesqueak.util.LogUtils;
+
+/**
+ * A display for headless images that streams the display bitmap to a file or a local socket, for
+ * screenshots and remote views. The image only reports damage, which is coalesced and encoded at
+ * most once per frame interval by a {@link SqueakDisplayRenderer} thread. Damaged regions are
+ * split into tiles of {@link #TILE_SIZE} pixels. Tiles that differ from the last frame sent are
+ * XORed with it, so that unchanged pixels become zero, and then deflated.
+ * <p>
+ * Stream format, all numbers big-endian:
+ *
+ * <pre>
+ * header:  "TSQD" int:version
+ * size:    byte:1 int:width int:height       (previous frame is reset to zero)
+ * tile:    byte:2 int:x int:y int:width int:height int:length byte[length]
+ *          (deflated 32-bit ARGB pixels, XORed with the previous frame, row by row)
+ * frame:   byte:3 long:millisecondsSinceStartup   (ends a frame)
+ * </pre>
+ */
+public final class SqueakHeadlessDisplay implements SqueakDisplayInterface {
+    private static final byte[] MAGIC = {'T', 'S', 'Q', 'D'};
+    private static final int VERSION = 1;
+    private static final byte RECORD_SIZE = 1;
+    private static final byte RECORD_TILE = 2;
+    private static final byte RECORD_FRAME = 3;
+    private static final int TILE_SIZE = 64;
+    private static final int DEFAULT_FRAME_INTERVAL = 100;
+
+    private final SqueakImageContext image;
+    private final SqueakDisplayRenderer renderer;
+    private final String sinkSpecification;
+    private DataOutputStream sink;
+    private boolean deferUpdates;
+    private String clipboardData = "";
+
+    /* Guarded by this, also accessed by the renderer thread. */
+    private int[] pixels;
+    private int[] sentPixels;
+    private int width;
+    private int height;
+    private boolean sizeChanged;
+
+    /* Only accessed by the renderer thread. */
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final int[] tileDelta = new int[TILE_SIZE * TILE_SIZE];
+    private final byte[] tileBytes = new byte[TILE_SIZE * TILE_SIZE * Integer.BYTES];
+    private final byte[] deflateBuffer = new byte[8 * 1024];
+    private final ByteArrayOutputStream compressedTile = new ByteArrayOutputStream();
+    private boolean hasTiles;
+
+    public SqueakHeadlessDisplay(final SqueakImageContext image, final String sinkSpecification) {
+        this.image = image;
+        this.sinkSpecification = sinkSpecification;
+        final int frameInterval = image.options.displayFrameInterval > 0 ? image.options.displayFrameInterval : DEFAULT_FRAME_INTERVAL;
+        renderer = new SqueakDisplayRenderer(new SqueakDisplayRenderer.Painter() {
+            @Override
+            public void paint(final int left, final int top, final int right, final int bottom) {
+                sendDamage(left, top, right, bottom);
+            }
+
+            @Override
+            public void endFrame() {
+                sendEndOfFrame();
+            }
+        }, frameInterval);
+    }
+
+    /* Opens "file:<path>" or "tcp:<port>", the latter connecting to a viewer on localhost. */
+    private static DataOutputStream openSink(final String specification) throws IOException {
+        final OutputStream stream;
+        if (specification.startsWith("file:")) {
+            stream = new FileOutputStream(specification.substring("file:".length()));
+        } else if (specification.startsWith("tcp:")) {
+            final int port;
+            try {
+                port = Integer.parseInt(specification.substring("tcp:".length()));
+            } catch (final NumberFormatException e) {
+                throw new IOException("Invalid port in " + specification, e);
+            }
+            final Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setTcpNoDelay(true);
+            stream = socket.getOutputStream();
+        } else {
+            throw new IOException("Unsupported display stream " + specification + " (expected file:<path> or tcp:<port>)");
+        }
+        final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+        output.write(MAGIC);
+        output.writeInt(VERSION);
+        return output;
+    }
+
+    @Override
+    @TruffleBoundary
+    public void open(final PointersObject sqDisplay) {
+        final AbstractPointersObjectReadNode readNode = AbstractPointersObjectReadNode.getUncached();
+        final NativeObject bitmap = readNode.executeNative(sqDisplay, FORM.BITS);
+        if (!bitmap.isIntType()) {
+            throw SqueakException.create("Display bitmap expected to be a words object");
+        }
+        final int newWidth = readNode.executeInt(sqDisplay, FORM.WIDTH);
+        final int newHeight = readNode.executeInt(sqDisplay, FORM.HEIGHT);
+        if (newWidth <= 0 || newHeight <= 0) {
+            return;
+        }
+        synchronized (this) {
+            if (sink == null) {
+                try {
+                    sink = openSink(sinkSpecification);
+                } catch (final IOException e) {
+                    LogUtils.IO.log(Level.WARNING, "Unable to open display stream", e);
+                    return;
+                }
+            }
+            pixels = bitmap.getIntStorage();
+            if (newWidth != width || newHeight != height) {
+                width = newWidth;
+                height = newHeight;
+                sentPixels = new int[width * height];
+                sizeChanged = true;
+            }
+        }
+        renderer.addDamage(0, 0, newWidth, newHeight);
+    }
+
+    @Override
+    @TruffleBoundary
+    public void showDisplayBitsLeftTopRightBottom(final PointersObject destForm, final int left, final int top, final int right, final int bottom) {
+        if (left < right && top < bottom && !deferUpdates && destForm.isDisplay(image)) {
+            renderer.addDamage(left, top, right, bottom);
+        }
+    }
+
+    @Override
+    @TruffleBoundary
+    public void showDisplayRect(final int left, final int right, final int top, final int bottom) {
+        assert left < right && top < bottom;
+        renderer.addDamage(left, top, right, bottom);
+    }
+
+    private synchronized void sendDamage(final int left, final int top, final int right, final int bottom) {
+        if (sink == null || pixels == null) {
+            return;
+        }
+        try {
+            if (sizeChanged) {
+                sink.writeByte(RECORD_SIZE);
+                sink.writeInt(width);
+                sink.writeInt(height);
+                sizeChanged = false;
+            }
+            final int clippedRight = Math.min(right, width);
+            final int clippedBottom = Math.min(bottom, height);
+            for (int tileTop = Math.max(top, 0) / TILE_SIZE * TILE_SIZE; tileTop < clippedBottom; tileTop += TILE_SIZE) {
+                for (int tileLeft = Math.max(left, 0) / TILE_SIZE * TILE_SIZE; tileLeft < clippedRight; tileLeft += TILE_SIZE) {
+                    sendTileIfChanged(tileLeft, tileTop, Math.min(TILE_SIZE, width - tileLeft), Math.min(TILE_SIZE, height - tileTop));
+                }
+            }
+        } catch (final IOException e) {
+            closeSink(e);
+        }
+    }
+
+    private void sendTileIfChanged(final int tileLeft, final int tileTop, final int tileWidth, final int tileHeight) throws IOException {
+        boolean changed = false;
+        int index = 0;
+        for (int y = tileTop; y < tileTop + tileHeight; y++) {
+            final int rowStart = y * width + tileLeft;
+            for (int i = rowStart; i < rowStart + tileWidth; i++) {
+                final int pixel = pixels[i];
+                final int delta = pixel ^ sentPixels[i];
+                if (delta != 0) {
+                    changed = true;
+                    sentPixels[i] = pixel;
+                }
+                tileDelta[index++] = delta;
+            }
+        }
+        if (!changed) {
+            return;
+        }
+        for (int i = 0; i < index; i++) {
+            final int value = tileDelta[i];
+            final int offset = i * Integer.BYTES;
+            tileBytes[offset] = (byte) (value >> 24);
+            tileBytes[offset + 1] = (byte) (value >> 16);
+            tileBytes[offset + 2] = (byte) (value >> 8);
+            tileBytes[offset + 3] = (byte) value;
+        }
+        deflater.reset();
+        deflater.setInput(tileBytes, 0, index * Integer.BYTES);
+        deflater.finish();
+        compressedTile.reset();
+        while (!deflater.finished()) {
+            compressedTile.write(deflateBuffer, 0, deflater.deflate(deflateBuffer));
+        }
+        sink.writeByte(RECORD_TILE);
+        sink.writeInt(tileLeft);
+        sink.writeInt(tileTop);
+        sink.writeInt(tileWidth);
+        sink.writeInt(tileHeight);
+        sink.writeInt(compressedTile.size());
+        compressedTile.writeTo(sink);
+        hasTiles = true;
+    }
+
+    private synchronized void sendEndOfFrame() {
+        if (sink == null || !hasTiles) {
+            return;
+        }
+        try {
+            sink.writeByte(RECORD_FRAME);
+            sink.writeLong(System.currentTimeMillis() - image.startUpMillis);
+            sink.flush();
+            hasTiles = false;
+        } catch (final IOException e) {
+            closeSink(e);
+        }
+    }
+
+    private void closeSink(final IOException reason) {
+        LogUtils.IO.log(Level.WARNING, "Display stream closed", reason);
+        try {
+            sink.close();
+        } catch (final IOException e) {
+            // Ignore, already failed.
+        }
+        sink = null;
+    }
+
+    @Override
+    @TruffleBoundary
+    public void close() {
+        renderer.shutdown();
+        synchronized (this) {
+            if (sink != null) {
+                try {
+                    sink.close();
+                } catch (final IOException e) {
+                    LogUtils.IO.log(Level.FINE, "Failed to close display stream", e);
+                }
+                sink = null;
+            }
+        }
+    }
+
+    @Override
+    public void resizeTo(final int newWidth, final int newHeight) {
+        // Size follows the display form.
+    }
+
+    @Override
+    public synchronized int getWindowWidth() {
+        return width;
+    }
+
+    @Override
+    public synchronized int getWindowHeight() {
+        return height;
+    }
+
+    @Override
+    public void setFullscreen(final boolean enable) {
+        // No window.
+    }
+
+    @Override
+    public boolean isVisible() {
+        return false;
+    }
+
+    @Override
+    public void setCursor(final int[] cursorWords, final int[] mask, final int cursorWidth, final int cursorHeight, final int depth, final int offsetX, final int offsetY) {
+        // Not streamed.
+    }
+
+    @Override
+    public long[] getNextEvent() {
+        return null;
+    }
+
+    @Override
+    public void setDeferUpdates(final boolean flag) {
+        deferUpdates = flag;
+    }
+
+    @Override
+    public boolean getDeferUpdates() {
+        return deferUpdates;
+    }
+
+    @Override
+    public void setWindowTitle(final String title) {
+        // No window.
+    }
+
+    @Override
+    public void setInputSemaphoreIndex(final int interruptSemaphoreIndex) {
+        // No input.
+    }
+
+    @Override
+    public String getClipboardData() {
+        return clipboardData;
+    }
+
+    @Override
+    public void setClipboardData(final String text) {
+        clipboardData = text;
+    }
+
+    @Override
+    public void beep() {
+        // No sound.
+    }
+
+    @Override
+    public void pollEvents() {
+        // No input.
+    }
+}
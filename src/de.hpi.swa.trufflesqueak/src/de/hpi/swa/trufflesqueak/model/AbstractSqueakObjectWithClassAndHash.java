@@ -19,20 +19,34 @@ import de.hpi.swa.trufflesqueak.nodes.dispatch.DispatchUneagerlyNode;
 import de.hpi.swa.trufflesqueak.util.ArrayUtils;
 import de.hpi.swa.trufflesqueak.util.MiscUtils;
 import de.hpi.swa.trufflesqueak.util.ObjectGraphUtils.ObjectTracer;
+import de.hpi.swa.trufflesqueak.util.UnsafeUtils;
+import sun.misc.Unsafe;
 
 public abstract class AbstractSqueakObjectWithClassAndHash extends AbstractSqueakObject {
     public static final int IDENTITY_HASH_MASK = 0x400000 - 1;
     /* Generate new hash if hash is 0 (see SpurMemoryManager>>#hashBitsOf:). */
     public static final long HASH_UNINITIALIZED = 0;
 
+    private static final Unsafe UNSAFE = UnsafeUtils.initUnsafe();
+    private static final long MARKING_FLAG_OFFSET;
+
+    static {
+        try {
+            MARKING_FLAG_OFFSET = UNSAFE.objectFieldOffset(AbstractSqueakObjectWithClassAndHash.class.getDeclaredField("markingFlag"));
+        } catch (final NoSuchFieldException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private long squeakHash;
     private ClassObject squeakClass;
-    private boolean markingFlag;
+    /* An int rather than a boolean, so that parallel heap walks can claim objects atomically. */
+    private int markingFlag;
 
     // For special/well-known objects only.
     protected AbstractSqueakObjectWithClassAndHash(final SqueakImageContext image) {
         squeakHash = HASH_UNINITIALIZED;
-        markingFlag = image.getCurrentMarkingFlag();
+        markingFlag = toMarkingFlag(image.getCurrentMarkingFlag());
     }
 
     protected AbstractSqueakObjectWithClassAndHash(final SqueakImageContext image, final long hash, final ClassObject klass) {
@@ -47,13 +61,16 @@ public abstract class AbstractSqueakObjectWithClassAndHash extends AbstractSquea
     protected AbstractSqueakObjectWithClassAndHash(final boolean markingFlag, final long hash, final ClassObject klass) {
         squeakHash = hash;
         squeakClass = klass;
-        this.markingFlag = markingFlag;
+        this.markingFlag = toMarkingFlag(markingFlag);
     }
 
     protected AbstractSqueakObjectWithClassAndHash(final AbstractSqueakObjectWithClassAndHash original) {
         squeakHash = HASH_UNINITIALIZED;
         squeakClass = original.squeakClass;
         markingFlag = original.markingFlag;
+        if (squeakClass != null) {
+            squeakClass.registerNewInstance(this);
+        }
     }
 
     @Override
@@ -75,6 +92,9 @@ public abstract class AbstractSqueakObjectWithClassAndHash extends AbstractSquea
     }
 
     public final void setSqueakClass(final ClassObject newClass) {
+        if (newClass != squeakClass && newClass != null && newClass.hasInstanceRegistry()) {
+            newClass.getInstanceRegistry().addExisting(this);
+        }
         squeakClass = newClass;
     }
 
@@ -116,12 +136,16 @@ public abstract class AbstractSqueakObjectWithClassAndHash extends AbstractSquea
         squeakHash = newHash;
     }
 
+    private static int toMarkingFlag(final boolean value) {
+        return value ? 1 : 0;
+    }
+
     public final boolean getMarkingFlag() {
-        return markingFlag;
+        return markingFlag != 0;
     }
 
     public final boolean isMarked(final boolean currentMarkingFlag) {
-        return markingFlag == currentMarkingFlag;
+        return markingFlag == toMarkingFlag(currentMarkingFlag);
     }
 
     @Override
@@ -152,14 +176,25 @@ public abstract class AbstractSqueakObjectWithClassAndHash extends AbstractSquea
      * @return <tt>false</tt> if already marked, <tt>true</tt> otherwise
      */
     public final boolean tryToMark(final boolean currentMarkingFlag) {
-        if (markingFlag == currentMarkingFlag) {
+        final int flag = toMarkingFlag(currentMarkingFlag);
+        if (markingFlag == flag) {
             return false;
         } else {
-            markingFlag = currentMarkingFlag;
+            markingFlag = flag;
             return true;
         }
     }
 
+    /**
+     * Same as {@link #tryToMark(boolean)}, but safe to use from multiple threads at the same time.
+     *
+     * @return <tt>false</tt> if already marked, <tt>true</tt> if this thread marked the object
+     */
+    public final boolean tryToMarkAtomically(final boolean currentMarkingFlag) {
+        final int flag = toMarkingFlag(currentMarkingFlag);
+        return UNSAFE.compareAndSwapInt(this, MARKING_FLAG_OFFSET, 1 - flag, flag);
+    }
+
     @SuppressWarnings("unused")
     public void pointersBecomeOneWay(final Object[] from, final Object[] to) {
         // Do nothing by default.
@@ -30,6 +30,7 @@ import de.hpi.swa.trufflesqueak.model.layout.ObjectLayouts.SPECIAL_OBJECT;
 import de.hpi.swa.trufflesqueak.nodes.accessing.AbstractPointersObjectNodes.AbstractPointersObjectReadNode;
 import de.hpi.swa.trufflesqueak.util.ArrayUtils;
 import de.hpi.swa.trufflesqueak.util.ObjectGraphUtils.ObjectTracer;
+import de.hpi.swa.trufflesqueak.util.WeakInstanceRegistry;
 
 /*
  * Represents all subclasses of ClassDescription (Class, Metaclass, TraitBehavior, ...).
@@ -51,6 +52,8 @@ public final class ClassObject extends AbstractSqueakObjectWithClassAndHash {
     private Object[] pointers;
 
     @CompilationFinal private ObjectLayout layout;
+    /* Only set if instance registries are enabled and the class is not special. */
+    private WeakInstanceRegistry instanceRegistry;
 
     public ClassObject(final SqueakImageContext image) {
         super(image);
@@ -72,6 +75,9 @@ public final class ClassObject extends AbstractSqueakObjectWithClassAndHash {
         instanceVariables = copiedInstanceVariablesOrNull;
         organization = original.organization == null ? null : original.organization.shallowCopy();
         pointers = original.pointers.clone();
+        if (original.instanceRegistry != null) {
+            instanceRegistry = new WeakInstanceRegistry(this);
+        }
     }
 
     public ClassObject(final SqueakImageContext image, final ClassObject classObject, final int size) {
@@ -82,6 +88,30 @@ public final class ClassObject extends AbstractSqueakObjectWithClassAndHash {
         // `size - CLASS_DESCRIPTION.SIZE` is negative when instantiating "Behavior".
     }
 
+    public boolean hasInstanceRegistry() {
+        return instanceRegistry != null;
+    }
+
+    public WeakInstanceRegistry getInstanceRegistry() {
+        return instanceRegistry;
+    }
+
+    public void enableInstanceRegistry() {
+        if (instanceRegistry == null) {
+            instanceRegistry = new WeakInstanceRegistry(this);
+        }
+    }
+
+    public void disableInstanceRegistry() {
+        instanceRegistry = null;
+    }
+
+    public void registerNewInstance(final AbstractSqueakObjectWithClassAndHash object) {
+        if (instanceRegistry != null) {
+            instanceRegistry.add(object);
+        }
+    }
+
     public SqueakImageContext getImage() {
         return image;
     }
@@ -19,55 +19,67 @@ import de.hpi.swa.trufflesqueak.image.SqueakImageContext;
 import de.hpi.swa.trufflesqueak.image.SqueakImageWriter;
 import de.hpi.swa.trufflesqueak.util.ArrayUtils;
 
+/**
+ * Large integers keep their magnitude as little-endian digits, the representation the image sees
+ * through digitAt: and digitAt:put:, and cache the corresponding {@link BigInteger} for
+ * arithmetic. Either form is materialized from the other on demand, and mutating the digits
+ * invalidates the cached {@link BigInteger}. This way, integers built digit by digit do not create
+ * a new {@link BigInteger} per digit, and results of arithmetic are only converted to digits if
+ * the image accesses them.
+ */
 public final class LargeIntegerObject extends AbstractSqueakObjectWithClassAndHash {
     private static final BigInteger ONE_SHIFTED_BY_64 = BigInteger.ONE.shiftLeft(64);
     public static final BigInteger LONG_MIN_OVERFLOW_RESULT = BigInteger.valueOf(Long.MIN_VALUE).abs();
     @CompilationFinal(dimensions = 1) private static final byte[] LONG_MIN_OVERFLOW_RESULT_BYTES = toBytes(LONG_MIN_OVERFLOW_RESULT);
 
+    /* Magnitude as little-endian digits of length exposedSize, or null if not materialized yet. */
+    private byte[] digits;
+    /* Value with the sign of the class, or null if the digits have changed since. */
     private BigInteger integer;
+    /* Always up to date, regardless of which form is materialized. */
     private int bitLength;
+    private int numSignificantDigits;
     private int exposedSize;
 
     public LargeIntegerObject(final SqueakImageContext image, final BigInteger integer) {
         super(image, integer.signum() >= 0 ? image.largePositiveIntegerClass : image.largeNegativeIntegerClass);
-        this.integer = integer;
-        bitLength = integer.bitLength();
-        exposedSize = calculateExposedSize(integer);
+        setInteger(integer);
+        exposedSize = numSignificantDigits;
         assert integer.signum() != 0 : "LargePositiveInteger>>isZero returns 'false'";
     }
 
     public LargeIntegerObject(final SqueakImageContext image, final long hash, final ClassObject klass, final byte[] bytes) {
         super(image, hash, klass);
-        integer = new BigInteger(isPositive() ? 1 : -1, ArrayUtils.swapOrderInPlace(bytes));
-        bitLength = integer.bitLength();
+        digits = bytes;
         exposedSize = bytes.length;
+        digitsChanged(exposedSize - 1);
     }
 
     public LargeIntegerObject(final SqueakImageContext image, final ClassObject klass, final byte[] bytes) {
         super(image, klass);
-        integer = new BigInteger(isPositive() ? 1 : -1, ArrayUtils.swapOrderInPlace(bytes));
-        bitLength = integer.bitLength();
+        digits = bytes;
         exposedSize = bytes.length;
+        digitsChanged(exposedSize - 1);
     }
 
     public LargeIntegerObject(final SqueakImageContext image, final ClassObject klass, final int size) {
         super(image, klass);
+        digits = new byte[size];
         integer = BigInteger.ZERO;
         bitLength = 0;
+        numSignificantDigits = 0;
         exposedSize = size;
     }
 
     private LargeIntegerObject(final LargeIntegerObject original) {
         super(original);
+        digits = original.digits == null ? null : original.digits.clone();
         integer = original.integer;
         bitLength = original.bitLength;
+        numSignificantDigits = original.numSignificantDigits;
         exposedSize = original.exposedSize;
     }
 
-    private static int calculateExposedSize(final BigInteger integer) {
-        return (integer.abs().bitLength() + 7) / 8;
-    }
-
     @Override
     public void fillin(final SqueakImageChunk chunk) {
         // Nothing to do.
@@ -93,90 +105,120 @@ public final class LargeIntegerObject extends AbstractSqueakObjectWithClassAndHa
         return bigInteger.abs().toByteArray();
     }
 
-    public long getNativeAt0(final long index) {
-        return absShiftRightIntValue((int) index * Byte.SIZE) & 0xFF;
+    private void setInteger(final BigInteger value) {
+        integer = value;
+        digits = null;
+        bitLength = value.bitLength();
+        /* The magnitude of a negative power of two has one bit more than BigInteger#bitLength(). */
+        final int magnitudeBitLength = value.signum() < 0 && value.getLowestSetBit() == bitLength ? bitLength + 1 : bitLength;
+        numSignificantDigits = (magnitudeBitLength + 7) / 8;
+    }
+
+    private byte[] getDigits() {
+        if (digits == null) {
+            digits = toDigits();
+        }
+        return digits;
     }
 
     @TruffleBoundary
-    private long absShiftRightIntValue(final int n) {
-        return integer.abs().shiftRight(n).intValue();
+    private byte[] toDigits() {
+        final byte[] bytes = toBytes(integer);
+        return bytes.length == exposedSize ? bytes : Arrays.copyOf(bytes, exposedSize);
+    }
+
+    public BigInteger getBigInteger() {
+        if (integer == null) {
+            integer = toBigInteger();
+        }
+        return integer;
+    }
+
+    @TruffleBoundary
+    private BigInteger toBigInteger() {
+        return new BigInteger(isPositive() ? 1 : -1, ArrayUtils.swapOrderInPlace(Arrays.copyOf(digits, numSignificantDigits)));
+    }
+
+    /*
+     * Updates bitLength and numSignificantDigits after digits up to lastChangedIndex have been
+     * changed. Only digits from the highest changed or significant one downwards are scanned.
+     */
+    private void digitsChanged(final int lastChangedIndex) {
+        integer = null;
+        if (lastChangedIndex + 1 >= numSignificantDigits) {
+            int top = lastChangedIndex + 1;
+            while (top > 0 && digits[top - 1] == 0) {
+                top--;
+            }
+            numSignificantDigits = top;
+        }
+        if (numSignificantDigits == 0) {
+            bitLength = 0;
+            return;
+        }
+        final int topDigit = digits[numSignificantDigits - 1] & 0xFF;
+        final int magnitudeBitLength = (numSignificantDigits - 1) * Byte.SIZE + Integer.SIZE - Integer.numberOfLeadingZeros(topDigit);
+        bitLength = isNegative() && isMagnitudePowerOfTwo(topDigit) ? magnitudeBitLength - 1 : magnitudeBitLength;
+    }
+
+    private boolean isMagnitudePowerOfTwo(final int topDigit) {
+        if (Integer.bitCount(topDigit) != 1) {
+            return false;
+        }
+        for (int i = 0; i < numSignificantDigits - 1; i++) {
+            if (digits[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getNativeAt0(final long index) {
+        final byte[] bytes = getDigits();
+        return index < bytes.length ? bytes[(int) index] & 0xFF : 0L;
     }
 
     @TruffleBoundary
     public void setNativeAt0(final long index, final long value) {
         assert index < size() : "Illegal index: " + index;
         assert 0 <= value && value <= NativeObject.BYTE_MAX : "Illegal value for LargeIntegerObject: " + value;
-        final byte[] bytes;
-        final byte[] bigIntegerBytes = toBigEndianBytes(integer);
-        final int offset = bigIntegerBytes[0] != 0 ? 0 : 1;
-        final int bigIntegerBytesActualLength = bigIntegerBytes.length - offset;
-        if (bigIntegerBytesActualLength <= index) {
-            final int newLength = Math.min(size(), (int) index + 1);
-            bytes = new byte[newLength];
-            System.arraycopy(bigIntegerBytes, offset, bytes, newLength - bigIntegerBytesActualLength, bigIntegerBytesActualLength);
-        } else {
-            bytes = bigIntegerBytes;
-        }
-        bytes[bytes.length - 1 - (int) index] = (byte) value;
-        integer = new BigInteger(isPositive() ? 1 : -1, bytes);
-        bitLength = integer.bitLength();
+        getDigits()[(int) index] = (byte) value;
+        digitsChanged((int) index);
     }
 
     @TruffleBoundary
     public byte[] getBytes() {
-        return toBytes(integer);
+        return Arrays.copyOf(getDigits(), numSignificantDigits);
     }
 
     @TruffleBoundary
     public void replaceInternalValue(final LargeIntegerObject other) {
         assert size() == other.size();
-        integer = other.getSqueakClass() == getSqueakClass() ? other.integer : other.integer.negate();
-        bitLength = integer.bitLength();
+        if (other.digits != null) {
+            digits = other.digits.clone();
+            digitsChanged(exposedSize - 1);
+        } else {
+            setInteger(other.getSqueakClass() == getSqueakClass() ? other.integer : other.integer.negate());
+        }
     }
 
     @TruffleBoundary
     public void setBytes(final byte[] bytes) {
         assert size() == bytes.length;
-        integer = new BigInteger(isPositive() ? 1 : -1, ArrayUtils.swapOrderCopy(bytes));
-        bitLength = integer.bitLength();
+        digits = bytes.clone();
+        digitsChanged(exposedSize - 1);
     }
 
     @TruffleBoundary
     public void setBytes(final LargeIntegerObject src, final int srcPos, final int destPos, final int length) {
-        final byte[] bytes;
-        final byte[] srcBytes = toBigEndianBytes(src.integer);
-        final byte[] bigIntegerBytes = toBigEndianBytes(integer);
-        final int offset = bigIntegerBytes[0] != 0 ? 0 : 1;
-        final int bigIntegerBytesActualLength = bigIntegerBytes.length - offset;
-        if (bigIntegerBytesActualLength < destPos + length) {
-            bytes = new byte[size()];
-            System.arraycopy(bigIntegerBytes, offset, bytes, 0, bigIntegerBytesActualLength);
-        } else {
-            bytes = bigIntegerBytes;
-        }
-        System.arraycopy(srcBytes, srcBytes.length - length - srcPos, bytes, bytes.length - length - destPos, length);
-        integer = new BigInteger(isPositive() ? 1 : -1, bytes);
-        bitLength = integer.bitLength();
+        System.arraycopy(src.getDigits(), srcPos, getDigits(), destPos, length);
+        digitsChanged(destPos + length - 1);
     }
 
     @TruffleBoundary
     public void setBytes(final byte[] srcBytes, final int srcPos, final int destPos, final int length) {
-        // destination bytes are big-endian, source bytes are not
-        final byte[] bytes;
-        final byte[] bigIntegerBytes = toBigEndianBytes(integer);
-        final int offset = bigIntegerBytes[0] != 0 ? 0 : 1;
-        final int bigIntegerBytesActualLength = bigIntegerBytes.length - offset;
-        if (bigIntegerBytesActualLength < destPos + length) {
-            bytes = new byte[size()];
-            System.arraycopy(bigIntegerBytes, offset, bytes, 0, bigIntegerBytesActualLength);
-        } else {
-            bytes = bigIntegerBytes;
-        }
-        for (int i = 0; i < length; i++) {
-            bytes[bytes.length - 1 - (destPos + i)] = srcBytes[srcPos + i];
-        }
-        integer = new BigInteger(isPositive() ? 1 : -1, bytes);
-        bitLength = integer.bitLength();
+        System.arraycopy(srcBytes, srcPos, getDigits(), destPos, length);
+        digitsChanged(destPos + length - 1);
     }
 
     @Override
@@ -198,17 +240,18 @@ public final class LargeIntegerObject extends AbstractSqueakObjectWithClassAndHa
     @TruffleBoundary(transferToInterpreterOnException = false)
     public String toString() {
         CompilerAsserts.neverPartOfCompilation();
-        assert bitLength == integer.bitLength();
+        assert bitLength == getBigInteger().bitLength();
         if (bitLength < Long.SIZE) {
-            return integer.longValue() + " - non-normalized " + getSqueakClass() + " of size " + exposedSize;
-        } else if (exposedSize != calculateExposedSize(integer)) {
-            return integer + " - non-normalized " + getSqueakClass() + " of size " + exposedSize;
+            return longValue() + " - non-normalized " + getSqueakClass() + " of size " + exposedSize;
+        } else if (exposedSize != numSignificantDigits) {
+            return getBigInteger() + " - non-normalized " + getSqueakClass() + " of size " + exposedSize;
         }
-        return integer.toString();
+        return getBigInteger().toString();
     }
 
+    @TruffleBoundary
     public boolean equals(final LargeIntegerObject other) {
-        return integer.equals(other.integer);
+        return getBigInteger().equals(other.getBigInteger());
     }
 
     @Override
@@ -261,26 +304,45 @@ public final class LargeIntegerObject extends AbstractSqueakObjectWithClassAndHa
     @TruffleBoundary
     public Object reduceIfPossible() {
         if (bitLength < Long.SIZE) {
-            return integer.longValue();
+            return longValue();
         } else {
-            exposedSize = calculateExposedSize(integer);
+            if (exposedSize != numSignificantDigits) {
+                exposedSize = numSignificantDigits;
+                if (digits != null) {
+                    digits = Arrays.copyOf(digits, exposedSize);
+                }
+            }
             return this;
         }
     }
 
+    /** Answers the lowest 64 bits of the two's complement, like {@link BigInteger#longValue()}. */
     @TruffleBoundary
     public long longValue() {
-        return integer.longValue();
+        if (digits == null) {
+            return integer.longValue();
+        }
+        long magnitude = 0;
+        for (int i = Math.min(numSignificantDigits, Long.BYTES) - 1; i >= 0; i--) {
+            magnitude = magnitude << Byte.SIZE | digits[i] & 0xFF;
+        }
+        return isNegative() ? -magnitude : magnitude;
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public long longValueExact() throws ArithmeticException {
-        return integer.longValueExact();
+        if (bitLength < Long.SIZE) {
+            return longValue();
+        }
+        throw new ArithmeticException("BigInteger out of long range");
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public int intValueExact() throws ArithmeticException {
-        return integer.intValueExact();
+        if (bitLength < Integer.SIZE) {
+            return (int) longValue();
+        }
+        throw new ArithmeticException("BigInteger out of int range");
     }
 
     public boolean fitsIntoLong() {
@@ -304,6 +366,10 @@ public final class LargeIntegerObject extends AbstractSqueakObjectWithClassAndHa
         return getSqueakClass().isLargeNegativeIntegerClass();
     }
 
+    private int signum() {
+        return numSignificantDigits == 0 ? 0 : isNegative() ? -1 : 1;
+    }
+
     /*
      * Arithmetic Operations
      */
@@ -311,12 +377,12 @@ public final class LargeIntegerObject extends AbstractSqueakObjectWithClassAndHa
     // TODO: Find out when reduceIfPossible is really necessary
     @TruffleBoundary(transferToInterpreterOnException = false)
     public Object add(final LargeIntegerObject b) {
-        return reduceIfPossible(integer.add(b.integer));
+        return reduceIfPossible(getBigInteger().add(b.getBigInteger()));
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public Object add(final long b) {
-        return reduceIfPossible(integer.add(BigInteger.valueOf(b)));
+        return reduceIfPossible(getBigInteger().add(BigInteger.valueOf(b)));
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
@@ -332,12 +398,12 @@ public final class LargeIntegerObject extends AbstractSqueakObjectWithClassAndHa
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public Object subtract(final LargeIntegerObject b) {
-        return reduceIfPossible(integer.subtract(b.integer));
+        return reduceIfPossible(getBigInteger().subtract(b.getBigInteger()));
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public Object subtract(final long b) {
-        return reduceIfPossible(integer.subtract(BigInteger.valueOf(b)));
+        return reduceIfPossible(getBigInteger().subtract(BigInteger.valueOf(b)));
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
@@ -354,12 +420,12 @@ public final class LargeIntegerObject extends AbstractSqueakObjectWithClassAndHa
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public static Object subtract(final long a, final LargeIntegerObject b) {
-        return b.reduceIfPossible(BigInteger.valueOf(a).subtract(b.integer));
+        return b.reduceIfPossible(BigInteger.valueOf(a).subtract(b.getBigInteger()));
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public Object multiply(final LargeIntegerObject b) {
-        return reduceIfPossible(integer.multiply(b.integer));
+        return reduceIfPossible(getBigInteger().multiply(b.getBigInteger()));
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
@@ -367,7 +433,7 @@ public final class LargeIntegerObject extends AbstractSqueakObjectWithClassAndHa
         if (b == 0) {
             return 0L;
         }
-        return reduceIfPossible(integer.multiply(BigInteger.valueOf(b)));
+        return reduceIfPossible(getBigInteger().multiply(BigInteger.valueOf(b)));
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
@@ -389,12 +455,12 @@ public final class LargeIntegerObject extends AbstractSqueakObjectWithClassAndHa
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public Object divide(final LargeIntegerObject b) {
-        return reduceIfPossible(integer.divide(b.integer));
+        return reduceIfPossible(getBigInteger().divide(b.getBigInteger()));
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public Object divide(final long b) {
-        return reduceIfPossible(integer.divide(BigInteger.valueOf(b)));
+        return reduceIfPossible(getBigInteger().divide(BigInteger.valueOf(b)));
     }
 
     public static long divide(@SuppressWarnings("unused") final long a, final LargeIntegerObject b) {
@@ -404,17 +470,17 @@ public final class LargeIntegerObject extends AbstractSqueakObjectWithClassAndHa
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public Object floorDivide(final LargeIntegerObject b) {
-        return reduceIfPossible(floorDivide(integer, b.integer));
+        return reduceIfPossible(floorDivide(getBigInteger(), b.getBigInteger()));
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public Object floorDivide(final long b) {
-        return reduceIfPossible(floorDivide(integer, BigInteger.valueOf(b)));
+        return reduceIfPossible(floorDivide(getBigInteger(), BigInteger.valueOf(b)));
     }
 
     public static long floorDivide(final long a, final LargeIntegerObject b) {
         assert !b.fitsIntoLong() : "non-reduced large integer!";
-        if (a != 0 && a < 0 ^ b.integer.signum() < 0) {
+        if (a != 0 && a < 0 ^ b.signum() < 0) {
             return -1L;
         } else {
             return 0L;
@@ -433,17 +499,17 @@ public final class LargeIntegerObject extends AbstractSqueakObjectWithClassAndHa
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public Object floorMod(final LargeIntegerObject b) {
-        return floorMod(integer, b.integer);
+        return floorMod(getBigInteger(), b.getBigInteger());
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public Object floorMod(final long b) {
-        return floorMod(integer, BigInteger.valueOf(b));
+        return floorMod(getBigInteger(), BigInteger.valueOf(b));
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public Object floorModReverseOrder(final long a) {
-        return floorMod(BigInteger.valueOf(a), integer);
+        return floorMod(BigInteger.valueOf(a), getBigInteger());
     }
 
     private Object floorMod(final BigInteger a, final BigInteger b) {
@@ -452,49 +518,49 @@ public final class LargeIntegerObject extends AbstractSqueakObjectWithClassAndHa
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public long remainder(final long other) {
-        return integer.remainder(BigInteger.valueOf(other)).longValue();
+        return getBigInteger().remainder(BigInteger.valueOf(other)).longValue();
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public Object remainder(final LargeIntegerObject b) {
-        return reduceIfPossible(integer.remainder(b.integer));
+        return reduceIfPossible(getBigInteger().remainder(b.getBigInteger()));
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public int compareTo(final LargeIntegerObject b) {
-        return integer.compareTo(b.integer);
+        return getBigInteger().compareTo(b.getBigInteger());
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public int compareTo(final long b) {
         if (bitLength < Long.SIZE) {
-            return Long.compare(integer.longValue(), b);
+            return Long.compare(longValue(), b);
         } else {
-            return integer.signum();
+            return signum();
         }
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public double doubleValue() {
-        return integer.doubleValue();
+        return getBigInteger().doubleValue();
     }
 
-    /** {@link BigInteger#signum()} does not need a {@link TruffleBoundary}. */
+    /** Does not need a {@link TruffleBoundary}, the sign is known without the {@link BigInteger}. */
     public boolean isZero() {
-        return integer.signum() == 0;
+        return signum() == 0;
     }
 
-    /** {@link BigInteger#signum()} does not need a {@link TruffleBoundary}. */
+    /** Does not need a {@link TruffleBoundary}, the sign is known without the {@link BigInteger}. */
     public boolean isZeroOrPositive() {
-        return integer.signum() >= 0;
+        return signum() >= 0;
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public boolean lessThanOrEqualTo(final long value) {
         if (bitLength < Long.SIZE) {
-            return integer.longValue() <= value;
+            return longValue() <= value;
         } else {
-            return integer.signum() < 0;
+            return signum() < 0;
         }
     }
 
@@ -505,7 +571,7 @@ public final class LargeIntegerObject extends AbstractSqueakObjectWithClassAndHa
     @TruffleBoundary(transferToInterpreterOnException = false)
     public boolean inRange(final long minValue, final long maxValue) {
         if (bitLength < Long.SIZE) {
-            final long longValueExact = integer.longValue();
+            final long longValueExact = longValue();
             return minValue <= longValueExact && longValueExact <= maxValue;
         }
         return false;
@@ -513,12 +579,12 @@ public final class LargeIntegerObject extends AbstractSqueakObjectWithClassAndHa
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public boolean isIntegralWhenDividedBy(final LargeIntegerObject other) {
-        return integer.remainder(other.integer).signum() == 0;
+        return getBigInteger().remainder(other.getBigInteger()).signum() == 0;
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public boolean isIntegralWhenDividedBy(final long other) {
-        return integer.remainder(BigInteger.valueOf(other)).signum() == 0;
+        return getBigInteger().remainder(BigInteger.valueOf(other)).signum() == 0;
     }
 
     public boolean sameSign(final LargeIntegerObject other) {
@@ -533,9 +599,9 @@ public final class LargeIntegerObject extends AbstractSqueakObjectWithClassAndHa
     public long toSignedLong() {
         assert isPositive() && bitLength <= Long.SIZE;
         if (bitLength == Long.SIZE) {
-            return integer.subtract(ONE_SHIFTED_BY_64).longValue();
+            return getBigInteger().subtract(ONE_SHIFTED_BY_64).longValue();
         } else {
-            return integer.longValue();
+            return longValue();
         }
     }
 
@@ -556,40 +622,40 @@ public final class LargeIntegerObject extends AbstractSqueakObjectWithClassAndHa
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public Object and(final LargeIntegerObject b) {
-        return reduceIfPossible(integer.and(b.integer));
+        return reduceIfPossible(getBigInteger().and(b.getBigInteger()));
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public Object and(final long b) {
-        return reduceIfPossible(integer.and(BigInteger.valueOf(b)));
+        return reduceIfPossible(getBigInteger().and(BigInteger.valueOf(b)));
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public Object or(final LargeIntegerObject b) {
-        return reduceIfPossible(integer.or(b.integer));
+        return reduceIfPossible(getBigInteger().or(b.getBigInteger()));
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public Object or(final long b) {
-        return reduceIfPossible(integer.or(BigInteger.valueOf(b)));
+        return reduceIfPossible(getBigInteger().or(BigInteger.valueOf(b)));
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public Object xor(final LargeIntegerObject b) {
-        return reduceIfPossible(integer.xor(b.integer));
+        return reduceIfPossible(getBigInteger().xor(b.getBigInteger()));
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public Object xor(final long b) {
-        return reduceIfPossible(integer.xor(BigInteger.valueOf(b)));
+        return reduceIfPossible(getBigInteger().xor(BigInteger.valueOf(b)));
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
     public Object shiftLeft(final int b) {
-        if (integer.signum() < 0 && b < 0) {
-            return reduceIfPossible(integer.abs().shiftLeft(b).negate());
+        if (signum() < 0 && b < 0) {
+            return reduceIfPossible(getBigInteger().abs().shiftLeft(b).negate());
         }
-        return reduceIfPossible(integer.shiftLeft(b));
+        return reduceIfPossible(getBigInteger().shiftLeft(b));
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
@@ -597,8 +663,4 @@ public final class LargeIntegerObject extends AbstractSqueakObjectWithClassAndHa
         assert b >= 0 : "This method must be used with a positive 'b' argument";
         return reduceIfPossible(image, BigInteger.valueOf(a).shiftLeft(b));
     }
-
-    public BigInteger getBigInteger() {
-        return integer;
-    }
 }
@@ -86,13 +86,13 @@ public final class ObjectLayout {
     }
 
     private static void assignGenericLocation(final SlotLocation[] newLocations, final int index) {
-        for (final SlotLocation possibleLocation : SlotLocation.OBJECT_LOCATIONS.getValues()) {
+        for (final SlotLocation possibleLocation : SlotLocation.getObjectLocations()) {
             if (!inUse(newLocations, possibleLocation)) {
                 newLocations[index] = possibleLocation;
                 return;
             }
         }
-        newLocations[index] = SlotLocation.getObjectLocation(SlotLocation.OBJECT_LOCATIONS.size());
+        newLocations[index] = SlotLocation.newObjectLocation();
     }
 
     private static void assignPrimitiveLocation(final SlotLocation[] newLocations, final int index, final SlotLocation[] possibleLocations) {
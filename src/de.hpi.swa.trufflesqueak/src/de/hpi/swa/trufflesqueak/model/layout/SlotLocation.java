@@ -35,14 +35,15 @@ public abstract class SlotLocation {
     public static final SlotLocation[] CHAR_LOCATIONS = new SlotLocation[NUM_PRIMITIVE_INLINE_LOCATIONS + NUM_PRIMITIVE_EXTENSION_LOCATIONS];
     public static final SlotLocation[] LONG_LOCATIONS = new SlotLocation[NUM_PRIMITIVE_INLINE_LOCATIONS + NUM_PRIMITIVE_EXTENSION_LOCATIONS];
     public static final SlotLocation[] DOUBLE_LOCATIONS = new SlotLocation[NUM_PRIMITIVE_INLINE_LOCATIONS + NUM_PRIMITIVE_EXTENSION_LOCATIONS];
-    public static final EconomicMap<Integer, SlotLocation> OBJECT_LOCATIONS = EconomicMap.create();
+    /* Shared by all images, which may be loaded and run in parallel. Guarded by the class lock. */
+    private static final EconomicMap<Integer, SlotLocation> OBJECT_LOCATIONS = EconomicMap.create();
 
     /**
      * Initializes slot locations. Slot locations use Unsafe to read inline fields of
      * {@link AbstractPointersObject}. Delaying their initialization allows SubstrateVM to intercept
      * Unsafe access in order to recalculate field offsets/addresses.
      */
-    public static void initialize() {
+    public static synchronized void initialize() {
         if (PRIMITIVE_ADDRESSES[0] != 0) {
             return; /* Already initialized */
         }
@@ -73,7 +74,20 @@ public abstract class SlotLocation {
         }
     }
 
-    public static SlotLocation getObjectLocation(final int index) {
+    public static synchronized SlotLocation[] getObjectLocations() {
+        final SlotLocation[] locations = new SlotLocation[OBJECT_LOCATIONS.size()];
+        int index = 0;
+        for (final SlotLocation location : OBJECT_LOCATIONS.getValues()) {
+            locations[index++] = location;
+        }
+        return locations;
+    }
+
+    public static synchronized SlotLocation newObjectLocation() {
+        return getObjectLocation(OBJECT_LOCATIONS.size());
+    }
+
+    public static synchronized SlotLocation getObjectLocation(final int index) {
         SlotLocation location = OBJECT_LOCATIONS.get(index);
         if (location == null) {
             location = new ObjectExtensionSlotLocation(index);
@@ -18,22 +18,37 @@ import de.hpi.swa.trufflesqueak.model.ContextObject;
 import de.hpi.swa.trufflesqueak.nodes.context.frame.GetContextNode;
 import de.hpi.swa.trufflesqueak.nodes.context.frame.GetOrCreateContextNode;
 
+/**
+ * Materializes the sender chain of escaped contexts whose frames are left while they can still be
+ * resumed, for example because of a process switch. Escaped contexts with an already materialized
+ * sender need no help. Escaped contexts that return locally are dead afterwards, so they are
+ * terminated (as in the OpenSmalltalk VM) instead of materializing their senders.
+ */
 public abstract class MaterializeContextOnMethodExitNode extends AbstractNode {
     public static MaterializeContextOnMethodExitNode create() {
         return MaterializeContextOnMethodExitNodeGen.create();
     }
 
-    public abstract void execute(VirtualFrame frame);
+    public abstract void execute(VirtualFrame frame, boolean hasReturnedLocally);
 
-    @Specialization(guards = {"image.lastSeenContext == null", "!getContextNode.hasContext(frame)", "getContextNode.execute(frame).hasEscaped()"}, limit = "1")
-    protected static final void doStartMaterialization(final VirtualFrame frame,
+    @Specialization(guards = {"image.lastSeenContext == null", "!hasReturnedLocally", "!getContextNode.hasContext(frame)", "getContextNode.execute(frame).hasEscaped()",
+                    "!getContextNode.execute(frame).hasMaterializedSender()"}, limit = "1")
+    protected static final void doStartMaterialization(final VirtualFrame frame, @SuppressWarnings("unused") final boolean hasReturnedLocally,
                     @Shared("getContextNode") @Cached final GetContextNode getContextNode,
                     @CachedContext(SqueakLanguage.class) final SqueakImageContext image) {
         image.lastSeenContext = getContextNode.execute(frame);
     }
 
+    @Specialization(guards = {"image.lastSeenContext == null", "hasReturnedLocally", "!getContextNode.hasContext(frame)", "getContextNode.execute(frame).hasEscaped()"}, limit = "1")
+    protected static final void doTerminate(final VirtualFrame frame, @SuppressWarnings("unused") final boolean hasReturnedLocally,
+                    @Shared("getContextNode") @Cached final GetContextNode getContextNode,
+                    @SuppressWarnings("unused") @CachedContext(SqueakLanguage.class) final SqueakImageContext image) {
+        /* The context has returned, so it cannot be resumed (see Context>>isDead). */
+        getContextNode.execute(frame).terminate();
+    }
+
     @Specialization(guards = {"image.lastSeenContext != null"})
-    protected static final void doMaterialize(final VirtualFrame frame,
+    protected static final void doMaterialize(final VirtualFrame frame, @SuppressWarnings("unused") final boolean hasReturnedLocally,
                     @Cached final ConditionProfile isNotLastSeenContextProfile,
                     @Cached final ConditionProfile continueProfile,
                     @Cached final GetOrCreateContextNode getOrCreateContextNode,
@@ -55,12 +70,16 @@ public abstract class MaterializeContextOnMethodExitNode extends AbstractNode {
         }
     }
 
-    @Specialization(guards = {"getContextNode.hasContext(frame) || !getContextNode.execute(frame).hasEscaped()"}, limit = "1")
-    protected final void doNothing(@SuppressWarnings("unused") final VirtualFrame frame,
+    @Specialization(guards = {"hasNothingToDo(getContextNode.execute(frame), hasReturnedLocally)"}, limit = "1")
+    protected final void doNothing(@SuppressWarnings("unused") final VirtualFrame frame, @SuppressWarnings("unused") final boolean hasReturnedLocally,
                     @SuppressWarnings("unused") @Shared("getContextNode") @Cached final GetContextNode getContextNode) {
         /*
          * Nothing to do because neither was a child context materialized nor has this context been
-         * requested and allocated.
+         * requested and allocated, or because its sender is already materialized.
          */
     }
+
+    protected static final boolean hasNothingToDo(final ContextObject context, final boolean hasReturnedLocally) {
+        return context == null || !context.hasEscaped() || !hasReturnedLocally && context.hasMaterializedSender();
+    }
 }
@@ -49,15 +49,18 @@ public final class StartContextRootNode extends RootNode {
     @Override
     public Object execute(final VirtualFrame frame) {
         initializeFrame(frame);
+        boolean hasReturnedLocally = false;
         try {
             interruptHandlerNode.execute(frame);
-            return executeBytecodeNode.execute(frame, initialPC);
+            final Object result = executeBytecodeNode.execute(frame, initialPC);
+            hasReturnedLocally = true;
+            return result;
         } catch (final NonVirtualReturn | ProcessSwitch nvr) {
             /** {@link getGetOrCreateContextNode()} acts as {@link BranchProfile} */
             getGetOrCreateContextNode().executeGet(frame).markEscaped();
             throw nvr;
         } finally {
-            materializeContextOnMethodExitNode.execute(frame);
+            materializeContextOnMethodExitNode.execute(frame, hasReturnedLocally);
         }
     }
 
@@ -49,7 +49,19 @@ public abstract class SqueakObjectNewNode extends AbstractNode {
 
     public final AbstractSqueakObjectWithClassAndHash execute(final SqueakImageContext image, final ClassObject classObject, final int extraSize) {
         CompilerAsserts.partialEvaluationConstant(image);
-        return image.reportAllocation(executeAllocation(image, classObject, extraSize));
+        final AbstractSqueakObjectWithClassAndHash object = executeAllocation(image, classObject, extraSize);
+        if (image.options.instanceRegistry) {
+            registerInstance(classObject, object);
+        }
+        return image.reportAllocation(object);
+    }
+
+    private static void registerInstance(final ClassObject classObject, final AbstractSqueakObjectWithClassAndHash object) {
+        if (object instanceof ClassObject) {
+            /* New classes are never special, so all their instances will be allocated here. */
+            ((ClassObject) object).enableInstanceRegistry();
+        }
+        classObject.registerNewInstance(object);
     }
 
     protected abstract AbstractSqueakObjectWithClassAndHash executeAllocation(SqueakImageContext image, ClassObject classObject, int extraSize);
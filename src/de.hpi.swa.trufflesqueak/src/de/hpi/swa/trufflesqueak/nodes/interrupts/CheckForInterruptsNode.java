@@ -43,6 +43,7 @@ public final class CheckForInterruptsNode extends Node {
             return;
         }
         isActiveProfile.enter();
+        istate.clearTriggers();
         if (istate.interruptPending()) {
             /* Exclude user interrupt case from compilation. */
             CompilerDirectives.transferToInterpreter();
@@ -80,6 +80,7 @@ public abstract class CheckForInterruptsQuickNode extends Node {
             }
             /* Exclude interrupts case from compilation. */
             CompilerDirectives.transferToInterpreter();
+            istate.clearTriggersNoTimer();
             if (istate.interruptPending()) {
                 LogUtils.INTERRUPTS.fine("User interrupt");
                 istate.interruptPending = false; // reset interrupt flag
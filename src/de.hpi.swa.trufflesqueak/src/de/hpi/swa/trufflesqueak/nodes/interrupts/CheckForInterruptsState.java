@@ -5,11 +5,14 @@
  */
 package de.hpi.swa.trufflesqueak.nodes.interrupts;
 
-import java.util.ArrayDeque;
+import java.lang.ref.ReferenceQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
 
 import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
@@ -20,15 +23,24 @@ import de.hpi.swa.trufflesqueak.model.NilObject;
 import de.hpi.swa.trufflesqueak.model.PointersObject;
 import de.hpi.swa.trufflesqueak.model.layout.ObjectLayouts.SPECIAL_OBJECT;
 import de.hpi.swa.trufflesqueak.util.LogUtils;
+import de.hpi.swa.trufflesqueak.util.MiscUtils;
 
 public final class CheckForInterruptsState {
     private static final String CHECK_FOR_INTERRUPTS_THREAD_NAME = "TruffleSqueakCheckForInterrupts";
+    private static final String FINALIZATION_THREAD_NAME = "TruffleSqueakFinalization";
 
     private static final int INTERRUPT_CHECKS_EVERY_N_MILLISECONDS = 20;
 
     private final SqueakImageContext image;
+    /*
+     * In event-driven mode, triggers are set by the events themselves and the timer interrupt is
+     * scheduled for the exact wakeup tick, instead of polling every few milliseconds.
+     */
+    private boolean isEventDriven;
+    private final Object idleLock = new Object();
     private ScheduledExecutorService executor;
-    private final ArrayDeque<Integer> semaphoresToSignal = new ArrayDeque<>();
+    private Thread finalizationThread;
+    private final ConcurrentLinkedDeque<Integer> semaphoresToSignal = new ConcurrentLinkedDeque<>();
 
     private boolean isActive = true;
     protected long nextWakeupTick;
@@ -47,6 +59,8 @@ public final class CheckForInterruptsState {
     @CompilationFinal private PointersObject interruptSemaphore;
     private PointersObject timerSemaphore;
     private ScheduledFuture<?> interruptChecks;
+    /* Rescheduled by both the interpreter and the executor thread. */
+    private final AtomicReference<ScheduledFuture<?>> timerInterrupt = new AtomicReference<>();
 
     public CheckForInterruptsState(final SqueakImageContext image) {
         this.image = image;
@@ -77,6 +91,13 @@ public final class CheckForInterruptsState {
             t.setDaemon(true);
             return t;
         });
+        isEventDriven = image.options.eventDrivenInterrupts;
+        startFinalizationThread();
+        if (isEventDriven) {
+            scheduleTimerInterrupt();
+            triggerIfPending();
+            return;
+        }
         interruptChecks = executor.scheduleWithFixedDelay(() -> {
             if (!shouldTrigger) {
                 shouldTrigger = isActive && (nextWakeUpTickTrigger() || pendingFinalizationSignals() || hasSemaphoresToSignal());
@@ -90,12 +111,125 @@ public final class CheckForInterruptsState {
         if (executor != null) {
             executor.shutdown();
         }
+        if (finalizationThread != null) {
+            finalizationThread.interrupt();
+            finalizationThread = null;
+        }
+    }
+
+    /**
+     * Waits for the JVM to clear weak slots of WeakVariablePointersObjects, so that the
+     * finalization semaphore is signaled promptly instead of only after an explicit full GC.
+     */
+    private void startFinalizationThread() {
+        finalizationThread = new Thread(this::drainWeakPointersQueue, FINALIZATION_THREAD_NAME);
+        finalizationThread.setDaemon(true);
+        finalizationThread.start();
+    }
+
+    private void drainWeakPointersQueue() {
+        final ReferenceQueue<Object> queue = image.weakPointersQueue;
+        try {
+            while (true) {
+                queue.remove();
+                int count = 1;
+                while (queue.poll() != null) {
+                    count++;
+                }
+                LogUtils.GC.log(Level.FINE, "Number of garbage collected WeakPointersObjects: {0}", count);
+                setPendingFinalizations(true);
+            }
+        } catch (final InterruptedException e) {
+            /* Interrupt handler has been shut down. */
+        }
     }
 
     public void setInterruptPending() {
         interruptPending = true;
+        trigger();
+    }
+
+    /* Called from any thread whenever a non-timer interrupt becomes pending. */
+    private void trigger() {
         shouldTrigger = isActive;
         shouldTriggerNoTimer = isActive;
+        if (isEventDriven) {
+            wakeUpIdleProcess();
+        }
+    }
+
+    private void triggerTimer() {
+        shouldTrigger = isActive;
+        wakeUpIdleProcess();
+    }
+
+    /*
+     * The executor waits on System.nanoTime, but the wakeup tick is compared against
+     * System.currentTimeMillis. If the timer fires before the tick has been reached, nothing else
+     * would re-arm it, so it is scheduled again for the remaining time.
+     */
+    private void onTimerInterrupt() {
+        if (nextWakeUpTickTrigger()) {
+            triggerTimer();
+        } else if (nextWakeupTick != 0) {
+            scheduleTimerInterrupt();
+        }
+    }
+
+    /* Re-evaluates all interrupt sources, for example after reactivation. */
+    private void triggerIfPending() {
+        if (isActive && (pendingFinalizationSignals() || hasSemaphoresToSignal() || interruptPending())) {
+            trigger();
+        } else if (isActive && nextWakeUpTickTrigger()) {
+            triggerTimer();
+        }
+    }
+
+    private void wakeUpIdleProcess() {
+        synchronized (idleLock) {
+            idleLock.notifyAll();
+        }
+    }
+
+    /**
+     * Clears the triggers before the interrupt sources are checked. Only needed in event-driven
+     * mode, where nothing else resets them. Any event arriving afterwards sets them again.
+     */
+    public void clearTriggers() {
+        if (isEventDriven) {
+            shouldTrigger = false;
+            shouldTriggerNoTimer = false;
+        }
+    }
+
+    public void clearTriggersNoTimer() {
+        if (isEventDriven) {
+            shouldTriggerNoTimer = false;
+        }
+    }
+
+    /**
+     * Relinquishes the processor for at most the given time. In event-driven mode, the idle process
+     * wakes up as soon as an interrupt becomes pending.
+     */
+    @TruffleBoundary
+    public void idle(final long millis) {
+        if (!isEventDriven || executor == null) {
+            MiscUtils.sleep(millis);
+            return;
+        }
+        if (millis <= 0) {
+            return;
+        }
+        synchronized (idleLock) {
+            if (!shouldTrigger) {
+                try {
+                    idleLock.wait(millis);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
     }
 
     public void setNextWakeupTick(final long msTime) {
@@ -107,6 +241,22 @@ public final class CheckForInterruptsState {
             }
         });
         nextWakeupTick = msTime;
+        if (isEventDriven) {
+            scheduleTimerInterrupt();
+        }
+    }
+
+    @TruffleBoundary
+    private void scheduleTimerInterrupt() {
+        ScheduledFuture<?> next = null;
+        if (nextWakeupTick != 0 && executor != null) {
+            final long delay = Math.max(nextWakeupTick - System.currentTimeMillis(), 0);
+            next = executor.schedule(this::onTimerInterrupt, delay, TimeUnit.MILLISECONDS);
+        }
+        final ScheduledFuture<?> previous = timerInterrupt.getAndSet(next);
+        if (previous != null) {
+            previous.cancel(false);
+        }
     }
 
     public long getNextWakeupTick() {
@@ -119,6 +269,9 @@ public final class CheckForInterruptsState {
 
     public void activate() {
         isActive = true;
+        if (isEventDriven) {
+            triggerIfPending();
+        }
     }
 
     public void deactivate() {
@@ -143,6 +296,9 @@ public final class CheckForInterruptsState {
 
     public void setPendingFinalizations(final boolean value) {
         pendingFinalizationSignals = value;
+        if (value && isEventDriven) {
+            trigger();
+        }
     }
 
     protected boolean pendingFinalizationSignals() {
@@ -164,6 +320,9 @@ public final class CheckForInterruptsState {
     @TruffleBoundary
     public void signalSemaphoreWithIndex(final int index) {
         semaphoresToSignal.addLast(index);
+        if (isEventDriven) {
+            trigger();
+        }
     }
 
     public boolean shouldTrigger() {
@@ -206,6 +365,10 @@ public final class CheckForInterruptsState {
         if (interruptChecks != null) {
             interruptChecks.cancel(true);
         }
+        final ScheduledFuture<?> previous = timerInterrupt.getAndSet(null);
+        if (previous != null) {
+            previous.cancel(true);
+        }
         shutdown();
         interruptPending = false;
         pendingFinalizationSignals = false;
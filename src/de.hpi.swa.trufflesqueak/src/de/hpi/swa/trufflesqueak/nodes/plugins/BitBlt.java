@@ -5,6 +5,9 @@
  */
 package de.hpi.swa.trufflesqueak.nodes.plugins;
 
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.LongBinaryOperator;
 
 import com.oracle.truffle.api.CompilerDirectives;
@@ -906,19 +909,33 @@ public final class BitBlt {
 
         /*
          * Here is the vertical loop, in two versions, one for the combinationRule = 3 copy mode,
-         * one for the general case.
+         * one for the general case. Each row consumes the same number of words, so rows can be
+         * copied in any order unless the source is also the destination.
          */
+        final long sourceRowDelta = (nWords + (preload ? 1 : 0)) * hInc + sourceDelta;
+        final long destRowDelta = nWords * hInc + destDelta;
+        final long firstSourceIndex = sourceIndex;
+        final long firstDestIndex = destIndex;
         if (combinationRule == 3) {
-            copyLoopCombinationRule3(halftoneWord, hInc, notSkewMask, skewMask, unskew);
+            forEachRowBand(sourceBits != destBits, (firstRow, endRow) -> copyLoopCombinationRule3(firstRow, endRow, firstSourceIndex + firstRow * sourceRowDelta,
+                            firstDestIndex + firstRow * destRowDelta, halftoneWord, hInc, notSkewMask, skewMask, unskew));
         } else {
-            copyLoopGeneralCase(halftoneWord, hInc, notSkewMask, skewMask, unskew);
+            final LongBinaryOperator mergeFnwith = opTable[combinationRule + 1];
+            assert mergeFnwith != null : "Unexpected `null` value";
+            forEachRowBand(sourceBits != destBits && isRowIndependentRule(combinationRule), (firstRow, endRow) -> copyLoopGeneralCase(mergeFnwith, firstRow, endRow,
+                            firstSourceIndex + firstRow * sourceRowDelta, firstDestIndex + firstRow * destRowDelta, halftoneWord, hInc, notSkewMask, skewMask, unskew));
         }
+        sourceIndex = firstSourceIndex + bbH * sourceRowDelta;
+        destIndex = firstDestIndex + bbH * destRowDelta;
     }
 
-    private void copyLoopCombinationRule3(final long initialHalftoneWord, final long hInc, final long notSkewMask, final long skewMask, final long unskew) {
+    private void copyLoopCombinationRule3(final int firstRow, final int endRow, final long firstSourceIndex, final long firstDestIndex, final long initialHalftoneWord, final long hInc,
+                    final long notSkewMask, final long skewMask, final long unskew) {
+        long sourceIndexInRow = firstSourceIndex;
+        long destIndexInRow = firstDestIndex;
         long halftoneWord = initialHalftoneWord;
-        int y = dy;
-        for (int i = 1; i <= bbH; i++) {
+        long y = dy + firstRow * vDir;
+        for (int i = firstRow; i < endRow; i++) {
             /*
              * here is the vertical loop for combinationRule = 3 copy mode; no need to call merge
              */
@@ -930,81 +947,96 @@ public final class BitBlt {
             long prevWord;
             if (preload) {
                 /* load the 64-bit shifter */
-                prevWord = srcLongAt(sourceIndex);
-                sourceIndex += hInc;
+                prevWord = srcLongAt(sourceIndexInRow);
+                sourceIndexInRow += hInc;
             } else {
                 prevWord = 0;
             }
-            destMask = mask1;
             /* pick up next word */
-            long thisWord = srcLongAt(sourceIndex);
-            sourceIndex += hInc;
+            long thisWord = srcLongAt(sourceIndexInRow);
+            sourceIndexInRow += hInc;
             /* 32-bit rotate */
             long skewWord = shift(prevWord & notSkewMask, unskew) | shift(thisWord & skewMask, skew);
             prevWord = thisWord;
-            long destWord = dstLongAt(destIndex);
-            destWord = destMask & skewWord & halftoneWord | destWord & ~destMask;
-            dstLongAtput(destIndex, destWord);
-            destIndex += hInc;
-            destMask = ALL_ONES;
+            long destWord = dstLongAt(destIndexInRow);
+            destWord = mask1 & skewWord & halftoneWord | destWord & ~mask1;
+            dstLongAtput(destIndexInRow, destWord);
+            destIndexInRow += hInc;
             if (skew == 0 && halftoneWord == ALL_ONES) {
                 /* Very special inner loop for STORE mode with no skew -- just move words */
-                if (preload && hDir == 1) {
+                final long numMiddleWords = Math.max(nWords - 2, 0);
+                /* Note with preload, the loop starts with prevWord loaded and copies one word behind */
+                final long sourceStart = preload && hDir == 1 ? sourceIndexInRow - 4 : sourceIndexInRow;
+                if (numMiddleWords > 0 && hDir == 1 && canMoveWords(sourceStart, destIndexInRow, numMiddleWords)) {
+                    System.arraycopy((int[]) sourceBits, (int) (sourceStart >>> 2), (int[]) destBits, (int) (destIndexInRow >>> 2), (int) numMiddleWords);
+                    destIndexInRow += numMiddleWords * 4;
+                    sourceIndexInRow += numMiddleWords * 4;
+                    prevWord = srcLongAt(sourceStart + (numMiddleWords - 1) * 4 + (preload ? 4 : 0));
+                } else if (preload && hDir == 1) {
                     for (long word = 2; word < nWords; word++) {
-                        /* Note loop starts with prevWord loaded (due to preload) */
-                        dstLongAtput(destIndex, prevWord);
-                        destIndex += hInc;
-                        prevWord = srcLongAt(sourceIndex);
-                        sourceIndex += hInc;
+                        dstLongAtput(destIndexInRow, prevWord);
+                        destIndexInRow += hInc;
+                        prevWord = srcLongAt(sourceIndexInRow);
+                        sourceIndexInRow += hInc;
                     }
                 } else {
                     for (long word = 2; word < nWords; word++) {
-                        thisWord = srcLongAt(sourceIndex);
-                        sourceIndex += hInc;
-                        dstLongAtput(destIndex, thisWord);
-                        destIndex += hInc;
+                        thisWord = srcLongAt(sourceIndexInRow);
+                        sourceIndexInRow += hInc;
+                        dstLongAtput(destIndexInRow, thisWord);
+                        destIndexInRow += hInc;
                     }
                     prevWord = thisWord;
                 }
             } else {
                 for (long word = 2; word < nWords; word++) {
-                    thisWord = srcLongAt(sourceIndex);
-                    sourceIndex += hInc;
+                    thisWord = srcLongAt(sourceIndexInRow);
+                    sourceIndexInRow += hInc;
                     /* 32-bit rotate */
                     skewWord = shift(prevWord & notSkewMask, unskew) | shift(thisWord & skewMask, skew);
                     prevWord = thisWord;
-                    dstLongAtput(destIndex, skewWord & halftoneWord);
-                    destIndex += hInc;
+                    dstLongAtput(destIndexInRow, skewWord & halftoneWord);
+                    destIndexInRow += hInc;
                 }
             }
             if (nWords > 1) {
-                destMask = mask2;
                 if (((skew < 0 ? skewMask >> -skew : skewMask << skew) & mask2) == 0) {
                     /* we don't need more bits, they will all come from prevWord */
                     thisWord = 0;
                 } else {
-                    thisWord = srcLongAt(sourceIndex);
+                    thisWord = srcLongAt(sourceIndexInRow);
                 }
-                sourceIndex += hInc;
+                sourceIndexInRow += hInc;
                 /* 32-bit rotate */
                 skewWord = shift(prevWord & notSkewMask, unskew) | shift(thisWord & skewMask, skew);
-                destWord = dstLongAt(destIndex);
-                destWord = destMask & skewWord & halftoneWord | destWord & ~destMask;
-                dstLongAtput(destIndex, destWord);
-                destIndex += hInc;
+                destWord = dstLongAt(destIndexInRow);
+                destWord = mask2 & skewWord & halftoneWord | destWord & ~mask2;
+                dstLongAtput(destIndexInRow, destWord);
+                destIndexInRow += hInc;
             }
-            sourceIndex += sourceDelta;
-            destIndex += destDelta;
+            sourceIndexInRow += sourceDelta;
+            destIndexInRow += destDelta;
         }
     }
 
-    private void copyLoopGeneralCase(final long initialHalftoneWord, final long hInc, final long notSkewMask, final long skewMask, final long unskew) {
-        long halftoneWord = initialHalftoneWord;
-        int y = dy;
-        final LongBinaryOperator mergeFnwith = opTable[combinationRule + 1];
-        assert mergeFnwith != null : "Unexpected `null` value";
+    /*
+     * Answers whether words can be moved with System.arraycopy, which the JIT compiles to vectorized
+     * copies. This requires int storage on both sides, a source range within bounds (srcLongAt
+     * answers 0 outside), and, if source and destination are the same, a copy that does not read
+     * words it has written before.
+     */
+    private boolean canMoveWords(final long firstSourceIndex, final long firstDestIndex, final long numWords) {
+        return sourceBits instanceof int[] && destBits instanceof int[] && 0 <= firstSourceIndex && firstSourceIndex + numWords * 4 <= endOfSource &&
+                        (sourceBits != destBits || firstDestIndex <= firstSourceIndex);
+    }
 
-        for (int i = 1; i <= bbH; i++) {
+    private void copyLoopGeneralCase(final LongBinaryOperator mergeFnwith, final int firstRow, final int endRow, final long firstSourceIndex, final long firstDestIndex,
+                    final long initialHalftoneWord, final long hInc, final long notSkewMask, final long skewMask, final long unskew) {
+        long sourceIndexInRow = firstSourceIndex;
+        long destIndexInRow = firstDestIndex;
+        long halftoneWord = initialHalftoneWord;
+        long y = dy + firstRow * vDir;
+        for (int i = firstRow; i < endRow; i++) {
             /* here is the vertical loop for the general case (combinationRule ~= 3) */
             if (halftoneHeight > 1) {
                 /* Otherwise, its always the same */
@@ -1014,36 +1046,37 @@ public final class BitBlt {
             long prevWord;
             if (preload) {
                 /* load the 64-bit shifter */
-                prevWord = srcLongAt(sourceIndex);
-                sourceIndex += hInc;
+                prevWord = srcLongAt(sourceIndexInRow);
+                sourceIndexInRow += hInc;
             } else {
                 prevWord = 0;
             }
+            /* Some merge functions read destMask, these are never run in parallel. */
             destMask = mask1;
             /* pick up next word */
-            long thisWord = srcLongAt(sourceIndex);
-            sourceIndex += hInc;
+            long thisWord = srcLongAt(sourceIndexInRow);
+            sourceIndexInRow += hInc;
             /* 32-bit rotate */
             long skewWord = shift(prevWord & notSkewMask, unskew) | shift(thisWord & skewMask, skew);
             prevWord = thisWord;
-            long destWord = dstLongAt(destIndex);
+            long destWord = dstLongAt(destIndexInRow);
             long mergeWord = mergeFnwith.applyAsLong(skewWord & halftoneWord, destWord);
-            destWord = destMask & mergeWord | destWord & ~destMask;
-            dstLongAtput(destIndex, destWord);
-            destIndex += hInc;
+            destWord = mask1 & mergeWord | destWord & ~mask1;
+            dstLongAtput(destIndexInRow, destWord);
+            destIndexInRow += hInc;
             destMask = ALL_ONES;
             for (long word = 2; word < nWords; word++) {
                 /* Normal inner loop does merge: */
                 /* pick up next word */
-                thisWord = srcLongAt(sourceIndex);
-                sourceIndex += hInc;
+                thisWord = srcLongAt(sourceIndexInRow);
+                sourceIndexInRow += hInc;
                 /* 32-bit rotate */
                 skewWord = (unskew < 0 ? (prevWord & notSkewMask) >>> -unskew : (prevWord & notSkewMask) << unskew) |
                                 (skew < 0 ? (thisWord & skewMask) >>> -skew : (thisWord & skewMask) << skew);
                 prevWord = thisWord;
-                mergeWord = mergeFnwith.applyAsLong(skewWord & halftoneWord, dstLongAt(destIndex));
-                dstLongAtput(destIndex, mergeWord);
-                destIndex += hInc;
+                mergeWord = mergeFnwith.applyAsLong(skewWord & halftoneWord, dstLongAt(destIndexInRow));
+                dstLongAtput(destIndexInRow, mergeWord);
+                destIndexInRow += hInc;
             }
             if (nWords > 1) {
                 destMask = mask2;
@@ -1051,20 +1084,20 @@ public final class BitBlt {
                     /* we don't need more bits, they will all come from prevWord */
                     thisWord = 0;
                 } else {
-                    thisWord = srcLongAt(sourceIndex);
+                    thisWord = srcLongAt(sourceIndexInRow);
                 }
-                sourceIndex += hInc;
+                sourceIndexInRow += hInc;
                 /* 32-bit rotate */
                 skewWord = (unskew < 0 ? (prevWord & notSkewMask) >>> -unskew : (prevWord & notSkewMask) << unskew) |
                                 (skew < 0 ? (thisWord & skewMask) >>> -skew : (thisWord & skewMask) << skew);
-                destWord = dstLongAt(destIndex);
+                destWord = dstLongAt(destIndexInRow);
                 mergeWord = mergeFnwith.applyAsLong(skewWord & halftoneWord, destWord);
-                destWord = destMask & mergeWord | destWord & ~destMask;
-                dstLongAtput(destIndex, destWord);
-                destIndex += hInc;
+                destWord = mask2 & mergeWord | destWord & ~mask2;
+                dstLongAtput(destIndexInRow, destWord);
+                destIndexInRow += hInc;
             }
-            sourceIndex += sourceDelta;
-            destIndex += destDelta;
+            sourceIndexInRow += sourceDelta;
+            destIndexInRow += destDelta;
         }
     }
 
@@ -1075,51 +1108,109 @@ public final class BitBlt {
 
     /* BitBltSimulation>>#copyLoopNoSource */
     private void copyLoopNoSource() {
-        long halftoneWord = 0;
         final LongBinaryOperator mergeFnwith = opTable[combinationRule + 1];
         assert mergeFnwith != null : "Unexpected `null` value";
+        final long destRowDelta = nWords * 4 + destDelta;
+        final long firstDestIndex = destIndex;
+        forEachRowBand(combinationRule == 3 || isRowIndependentRule(combinationRule),
+                        (firstRow, endRow) -> copyLoopNoSource(mergeFnwith, firstRow, endRow, firstDestIndex + firstRow * destRowDelta));
+        destIndex = firstDestIndex + bbH * destRowDelta;
+    }
+
+    private void copyLoopNoSource(final LongBinaryOperator mergeFnwith, final int firstRow, final int endRow, final long firstDestIndex) {
+        long destIndexInRow = firstDestIndex;
+        long halftoneWord = 0;
         if (noHalftone) {
             halftoneWord = ALL_ONES;
         }
-        for (int i = 1; i <= bbH; i++) {
+        for (int i = firstRow; i < endRow; i++) {
             /* here is the vertical loop */
             if (!noHalftone) {
-                halftoneWord = halftoneLongAt(dy + i - 1);
+                halftoneWord = halftoneLongAt(dy + i);
             }
+            /* Some merge functions read destMask, these are never run in parallel. */
             destMask = mask1;
-            long destWord = dstLongAt(destIndex);
+            long destWord = dstLongAt(destIndexInRow);
             long mergeWord = mergeFnwith.applyAsLong(halftoneWord, destWord);
-            destWord = destMask & mergeWord | destWord & ~destMask;
-            dstLongAtput(destIndex, destWord);
-            destIndex += 4;
+            destWord = mask1 & mergeWord | destWord & ~mask1;
+            dstLongAtput(destIndexInRow, destWord);
+            destIndexInRow += 4;
             destMask = ALL_ONES;
             if (combinationRule == 3) {
                 /* Special inner loop for STORE */
-                destWord = halftoneWord;
-                for (long word = 2; word < nWords; word++) {
-                    dstLongAtput(destIndex, destWord);
-                    destIndex += 4;
+                if (nWords > 2 && destBits instanceof int[]) {
+                    final int fromIndex = (int) (destIndexInRow >>> 2);
+                    Arrays.fill((int[]) destBits, fromIndex, fromIndex + nWords - 2, (int) halftoneWord);
+                    destIndexInRow += (nWords - 2) * 4;
+                } else {
+                    destWord = halftoneWord;
+                    for (long word = 2; word < nWords; word++) {
+                        dstLongAtput(destIndexInRow, destWord);
+                        destIndexInRow += 4;
+                    }
                 }
             } else {
                 /* Normal inner loop does merge */
                 for (long word = 2; word < nWords; word++) {
                     /* Normal inner loop does merge */
-                    destWord = dstLongAt(destIndex);
+                    destWord = dstLongAt(destIndexInRow);
                     mergeWord = mergeFnwith.applyAsLong(halftoneWord, destWord);
-                    dstLongAtput(destIndex, mergeWord);
-                    destIndex += 4;
+                    dstLongAtput(destIndexInRow, mergeWord);
+                    destIndexInRow += 4;
                 }
             }
             if (nWords > 1) {
                 destMask = mask2;
-                destWord = dstLongAt(destIndex);
+                destWord = dstLongAt(destIndexInRow);
                 mergeWord = mergeFnwith.applyAsLong(halftoneWord, destWord);
-                destWord = destMask & mergeWord | destWord & ~destMask;
-                dstLongAtput(destIndex, destWord);
-                destIndex += 4;
+                destWord = mask2 & mergeWord | destWord & ~mask2;
+                dstLongAtput(destIndexInRow, destWord);
+                destIndexInRow += 4;
             }
-            destIndex += destDelta;
+            destIndexInRow += destDelta;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowBandLoop {
+        void copyRows(int firstRow, int endRow);
+    }
+
+    /*
+     * Copies all bbH rows with the given loop. If rows are independent and the blit is large enough,
+     * the rows are split into bands copied by the workers of the common ForkJoinPool.
+     */
+    private void forEachRowBand(final boolean rowsAreIndependent, final RowBandLoop loop) {
+        final int numBands = rowsAreIndependent ? numberOfRowBands() : 1;
+        if (numBands <= 1) {
+            loop.copyRows(0, bbH);
+            return;
         }
+        final ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[numBands];
+        for (int band = 0; band < numBands; band++) {
+            final int firstRow = (int) ((long) bbH * band / numBands);
+            final int endRow = (int) ((long) bbH * (band + 1) / numBands);
+            tasks[band] = ForkJoinTask.adapt(() -> loop.copyRows(firstRow, endRow));
+        }
+        ForkJoinTask.invokeAll(tasks);
+    }
+
+    private int numberOfRowBands() {
+        final int threshold = image.options.bitbltParallelThreshold;
+        final long numWords = (long) nWords * bbH;
+        if (threshold <= 0 || numWords < threshold || bbH < 2) {
+            return 1;
+        }
+        /* Bands of at least half the threshold, one per worker at most. */
+        return (int) Math.min(Math.min(ForkJoinPool.getCommonPoolParallelism(), bbH), numWords * 2 / threshold);
+    }
+
+    /*
+     * Merge functions that neither depend on nor update state other than their arguments, so that
+     * rows can be merged concurrently. Excludes the tallying rules and the rules reading destMask.
+     */
+    private static boolean isRowIndependentRule(final int rule) {
+        return 0 <= rule && rule <= 21 || 24 <= rule && rule <= 29 || 34 <= rule && rule <= 37;
     }
 
     /*
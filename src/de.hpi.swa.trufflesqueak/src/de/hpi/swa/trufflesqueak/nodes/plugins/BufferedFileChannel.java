@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2017-2021 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.trufflesqueak.nodes.plugins;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+
+import de.hpi.swa.trufflesqueak.util.UnsafeUtils;
+
+/**
+ * Adds read-ahead and write-behind to the channel of a file handle, so that small sequential reads
+ * and writes from FileStreams do not each turn into a system call. A single buffer either holds
+ * data read ahead or pending writes, never both. Pending writes are flushed before reads, on
+ * explicit flushes, when the position changes, on truncation, and on close. Requests at least as
+ * large as the read-ahead or write-behind size bypass the buffer.
+ */
+final class BufferedFileChannel implements SeekableByteChannel {
+    /* Also used as staging area when reading words, even if read-ahead is disabled. */
+    private static final int MIN_BUFFER_SIZE = 8 * 1024;
+
+    private final SeekableByteChannel channel;
+    private final int readAheadSize;
+    private final int writeBehindSize;
+    private final ByteBuffer buffer;
+
+    /* Logical position as seen by the image. */
+    private long position;
+    /* Position of the underlying channel, tracked to avoid redundant seeks. */
+    private long channelPosition;
+    /* File offset of the first byte in the buffer. */
+    private long bufferStart;
+    private boolean hasReadData;
+    private boolean hasWriteData;
+
+    BufferedFileChannel(final SeekableByteChannel channel, final int readAheadSize, final int writeBehindSize) throws IOException {
+        this.channel = channel;
+        this.readAheadSize = Math.max(readAheadSize, 0);
+        this.writeBehindSize = Math.max(writeBehindSize, 0);
+        buffer = ByteBuffer.allocate(Math.max(Math.max(this.readAheadSize, this.writeBehindSize), MIN_BUFFER_SIZE));
+        position = channel.position();
+        channelPosition = position;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Override
+    public int read(final ByteBuffer dst) throws IOException {
+        flush();
+        int total = 0;
+        while (dst.hasRemaining()) {
+            if (hasReadData && buffer.hasRemaining()) {
+                final int count = Math.min(buffer.remaining(), dst.remaining());
+                final int oldLimit = buffer.limit();
+                buffer.limit(buffer.position() + count);
+                dst.put(buffer);
+                buffer.limit(oldLimit);
+                position += count;
+                total += count;
+                continue;
+            }
+            discardReadData();
+            if (dst.remaining() >= readAheadSize) {
+                /* Large request, read directly into the destination. */
+                seekChannel(position);
+                final int read = channel.read(dst);
+                if (read > 0) {
+                    channelPosition += read;
+                    position += read;
+                    total += read;
+                }
+                return total == 0 ? read : total;
+            }
+            if (!fill(readAheadSize)) {
+                break;
+            }
+        }
+        return total == 0 && dst.hasRemaining() ? -1 : total;
+    }
+
+    /**
+     * Reads up to {@code count} ints straight into {@code target} in native byte order. Only whole
+     * ints are consumed, trailing bytes at the end of the file are left unread.
+     *
+     * @return the number of ints read, zero at the end of the file
+     */
+    int readInts(final int[] target, final int targetIndex, final int count) throws IOException {
+        flush();
+        final int numBytes = count * Integer.BYTES;
+        int copied = 0;
+        while (copied < numBytes) {
+            if (!hasReadData || buffer.remaining() < Integer.BYTES) {
+                /* Refill from the current position, rereading any partial int still buffered. */
+                discardReadData();
+                if (!fill(Math.max(readAheadSize, Math.min(numBytes - copied, buffer.capacity()))) || buffer.remaining() < Integer.BYTES) {
+                    break;
+                }
+            }
+            final int n = Math.min(buffer.remaining(), numBytes - copied) & -Integer.BYTES;
+            UnsafeUtils.copyBytesToInts(buffer.array(), buffer.arrayOffset() + buffer.position(), target, (long) targetIndex * Integer.BYTES + copied, n);
+            buffer.position(buffer.position() + n);
+            position += n;
+            copied += n;
+        }
+        return copied / Integer.BYTES;
+    }
+
+    @Override
+    public int write(final ByteBuffer src) throws IOException {
+        discardReadData();
+        final int count = src.remaining();
+        if (count >= writeBehindSize) {
+            /* Large request or write-behind disabled, write through. */
+            flush();
+            seekChannel(position);
+            final int written = writeFully(src);
+            position += written;
+            return written;
+        }
+        if (buffer.remaining() < count) {
+            flush();
+        }
+        if (!hasWriteData) {
+            buffer.clear();
+            bufferStart = position;
+            hasWriteData = true;
+        }
+        buffer.put(src);
+        position += count;
+        return count;
+    }
+
+    /** Writes pending data to the underlying channel. */
+    void flush() throws IOException {
+        if (hasWriteData) {
+            buffer.flip();
+            seekChannel(bufferStart);
+            writeFully(buffer);
+            buffer.clear();
+            hasWriteData = false;
+        }
+    }
+
+    @Override
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public SeekableByteChannel position(final long newPosition) throws IOException {
+        if (newPosition < 0) {
+            throw new IllegalArgumentException();
+        }
+        if (newPosition != position) {
+            flush();
+            discardReadData();
+            position = newPosition;
+        }
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        final long size = channel.size();
+        return hasWriteData ? Math.max(size, bufferStart + buffer.position()) : size;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(final long size) throws IOException {
+        flush();
+        discardReadData();
+        channel.truncate(size);
+        channelPosition = channel.position();
+        position = Math.min(position, size);
+        return this;
+    }
+
+    private boolean fill(final int maxBytes) throws IOException {
+        seekChannel(position);
+        buffer.clear();
+        buffer.limit(Math.min(Math.max(maxBytes, 1), buffer.capacity()));
+        final int read = channel.read(buffer);
+        buffer.flip();
+        if (read <= 0) {
+            buffer.clear();
+            return false;
+        }
+        channelPosition += read;
+        bufferStart = position;
+        hasReadData = true;
+        return true;
+    }
+
+    private void discardReadData() {
+        if (hasReadData) {
+            hasReadData = false;
+            buffer.clear();
+        }
+    }
+
+    private int writeFully(final ByteBuffer src) throws IOException {
+        int written = 0;
+        while (src.hasRemaining()) {
+            written += channel.write(src);
+        }
+        channelPosition += written;
+        return written;
+    }
+
+    private void seekChannel(final long newPosition) throws IOException {
+        if (channelPosition != newPosition) {
+            channel.position(newPosition);
+            channelPosition = newPosition;
+        }
+    }
+}
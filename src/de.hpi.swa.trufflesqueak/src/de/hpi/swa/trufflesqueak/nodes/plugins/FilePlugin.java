@@ -112,7 +112,7 @@ public final class FilePlugin extends AbstractPrimitiveFactoryHolder {
     }
 
     protected static PointersObject createFileHandleOrPrimFail(final SqueakImageContext image, final TruffleFile truffleFile, final boolean writableFlag) {
-        return PointersObject.newHandleWithHiddenObject(image, createChannelOrPrimFail(truffleFile, writableFlag));
+        return PointersObject.newHandleWithHiddenObject(image, createChannelOrPrimFail(image, truffleFile, writableFlag));
     }
 
     public static PointersObject createStdioFileHandle(final SqueakImageContext image, final byte type) {
@@ -120,9 +120,11 @@ public final class FilePlugin extends AbstractPrimitiveFactoryHolder {
     }
 
     @TruffleBoundary(transferToInterpreterOnException = false)
-    private static SeekableByteChannel createChannelOrPrimFail(final TruffleFile truffleFile, final boolean writableFlag) {
+    private static SeekableByteChannel createChannelOrPrimFail(final SqueakImageContext image, final TruffleFile truffleFile, final boolean writableFlag) {
         try {
-            return truffleFile.newByteChannel(writableFlag ? OPTIONS_WRITEABLE : OPTIONS_DEFAULT);
+            final SeekableByteChannel channel = truffleFile.newByteChannel(writableFlag ? OPTIONS_WRITEABLE : OPTIONS_DEFAULT);
+            /* Read-only files must fail on write immediately, so never buffer their writes. */
+            return new BufferedFileChannel(channel, image.options.fileReadAhead, writableFlag ? image.options.fileWriteBehind : 0);
         } catch (IOException | UnsupportedOperationException | SecurityException e) {
             log("Failed to create SeekableByteChannel", e);
             throw PrimitiveFailed.GENERIC_ERROR;
@@ -422,9 +424,22 @@ public final class FilePlugin extends AbstractPrimitiveFactoryHolder {
         }
 
         @Specialization(guards = "!isStdioFileDescriptor(fd)")
-        protected static final Object doFlush(final Object receiver, @SuppressWarnings("unused") final PointersObject fd) {
+        protected static final Object doFlush(final Object receiver, final PointersObject fd) {
+            flushOrPrimFail(getChannelOrPrimFail(fd));
             return receiver;
         }
+
+        @TruffleBoundary(transferToInterpreterOnException = false)
+        private static void flushOrPrimFail(final SeekableByteChannel channel) {
+            if (channel instanceof BufferedFileChannel) {
+                try {
+                    ((BufferedFileChannel) channel).flush();
+                } catch (final IOException e) {
+                    log("Failed to flush file", e);
+                    throw PrimitiveFailed.GENERIC_ERROR;
+                }
+            }
+        }
     }
 
     @GenerateNodeFactory
@@ -482,37 +497,30 @@ public final class FilePlugin extends AbstractPrimitiveFactoryHolder {
 
         @Specialization(guards = {"!isStdioFileDescriptor(fd)", "target.isIntType()", "inBounds(startIndex, count, target.getIntLength())"})
         protected static final long doReadInts(@SuppressWarnings("unused") final Object receiver, final PointersObject fd, final NativeObject target, final long startIndex, final long count) {
-            final ByteBuffer dst = allocate((int) count * Integer.BYTES);
-            final long readBytes = readFrom(getChannelOrPrimFail(fd), dst);
-            final byte[] bytes = getBytes(dst);
-            assert readBytes % Integer.BYTES == 0 && readBytes == bytes.length;
-            final long readInts = readBytes / Integer.BYTES;
-            for (int index = 0; index < readInts; index++) {
-                target.setInt(startIndex - 1 + index, UnsafeUtils.getInt(bytes, index));
-            }
-            return Math.max(readInts, 0L); // `read` can be `-1`, Squeak expects zero.
-        }
-
-        @TruffleBoundary
-        private static ByteBuffer allocate(final int count) {
-            return ByteBuffer.allocate(count);
+            return readIntsFrom(getChannelOrPrimFail(fd), target.getIntStorage(), (int) startIndex - 1, (int) count);
         }
 
         @TruffleBoundary(transferToInterpreterOnException = false)
-        private static int readFrom(final SeekableByteChannel channel, final ByteBuffer dst) {
+        private static long readIntsFrom(final SeekableByteChannel channel, final int[] ints, final int startIndex, final int count) {
             try {
-                return channel.read(dst);
+                if (channel instanceof BufferedFileChannel) {
+                    return ((BufferedFileChannel) channel).readInts(ints, startIndex, count);
+                }
+                final byte[] bytes = new byte[count * Integer.BYTES];
+                final int readBytes = Math.max(channel.read(ByteBuffer.wrap(bytes)), 0); // `read` can be `-1`.
+                final int readInts = readBytes / Integer.BYTES;
+                if (readBytes % Integer.BYTES != 0) {
+                    /* Leave trailing bytes of a partial int unread, as BufferedFileChannel does. */
+                    channel.position(channel.position() - readBytes % Integer.BYTES);
+                }
+                UnsafeUtils.copyBytesToInts(bytes, 0, ints, (long) startIndex * Integer.BYTES, readInts * Integer.BYTES);
+                return readInts;
             } catch (final IOException e) {
                 log("Failed to read from channel", e);
                 throw PrimitiveFailed.GENERIC_ERROR;
             }
         }
 
-        @TruffleBoundary
-        private static byte[] getBytes(final ByteBuffer dst) {
-            return dst.array();
-        }
-
         @SuppressWarnings("unused")
         @Specialization(guards = {"isStdioFileDescriptor(fd)"})
         protected static final Object doReadStdio(final Object receiver, final PointersObject fd, final NativeObject target, final long startIndex, final long longCount) {
@@ -10,11 +10,15 @@ import static java.util.Arrays.asList;
 import java.io.IOException;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.security.GeneralSecurityException;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
@@ -24,6 +28,7 @@ import javax.net.ssl.SSLEngineResult.Status;
 import javax.net.ssl.SSLException;
 import javax.net.ssl.SSLHandshakeException;
 import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
 
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
@@ -35,6 +40,7 @@ import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.profiles.BranchProfile;
 
 import de.hpi.swa.trufflesqueak.SqueakLanguage;
+import de.hpi.swa.trufflesqueak.SqueakOptions.SqueakContextOptions;
 import de.hpi.swa.trufflesqueak.exceptions.SqueakExceptions.SqueakException;
 import de.hpi.swa.trufflesqueak.image.SqueakImageContext;
 import de.hpi.swa.trufflesqueak.model.AbstractSqueakObject;
@@ -125,6 +131,7 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
 
     // FIXME global state
     private static String certificateName;
+    private static final Map<String, SharedContext> SHARED_CONTEXTS = new HashMap<>();
 
     private enum ReturnCode implements HasId {
         OK(0),
@@ -169,7 +176,12 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
         VERSION(0),
         LOG_LEVEL(1),
         SSL_STATE(2),
-        CERTIFICATE_STATE(3);
+        CERTIFICATE_STATE(3),
+        /* Not part of the reference plugin. */
+        HANDSHAKES(100),
+        BYTES_ENCRYPTED(101),
+        BYTES_DECRYPTED(102),
+        PEER_PORT(103);
 
         private final long value;
 
@@ -221,6 +233,8 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
 
     private static final class Constants {
         private static final long VERSION = 3;
+        /* The image does not pass the port of the socket, so assume HTTPS unless told otherwise. */
+        private static final int DEFAULT_PEER_PORT = 443;
     }
 
     private static ByteBuffer createEmptyImmutableBuffer() {
@@ -235,9 +249,18 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
         /* Hack: Use "*" to avoid certificate validation errors and NPE. */
         private String peerName = "*";
         private String serverName;
+        private int peerPort = Constants.DEFAULT_PEER_PORT;
 
         private ByteBuffer buffer;
 
+        /* Reused for the output of wrap and unwrap when it does not fit the target buffer. */
+        private ByteBuffer packetBuffer;
+        private ByteBuffer applicationBuffer;
+
+        private long handshakes;
+        private long bytesEncrypted;
+        private long bytesDecrypted;
+
         @SuppressWarnings("unused" /* TODO */) private long logLevel;
     }
 
@@ -261,7 +284,7 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
     }
 
     private static SSLEngineResult wrap(final SqSSL ssl, final ByteBuffer sourceBuffer, final ByteBuffer targetBuffer) throws SSLException {
-        return encode(ssl, ssl.engine::wrap, sourceBuffer, targetBuffer);
+        return encode(ssl, ssl.engine::wrap, true, sourceBuffer, targetBuffer);
     }
 
     /**
@@ -269,18 +292,37 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
      * read-only.
      */
     private static SSLEngineResult unwrap(final SqSSL ssl, final ByteBuffer sourceBuffer, final ByteBuffer targetBuffer) throws SSLException {
-        return encode(ssl, ssl.engine::unwrap, sourceBuffer, targetBuffer);
+        return encode(ssl, ssl.engine::unwrap, false, sourceBuffer, targetBuffer);
     }
 
+    /**
+     * Encode directly into the target buffer, which wraps the storage of the Squeak object. Only if
+     * the engine reports that the output does not fit, or if the target is read-only, go through
+     * the intermediate buffer of the session, which is kept across calls.
+     */
     @TruffleBoundary
-    private static SSLEngineResult encode(final SqSSL ssl, final Encoder encoder, final ByteBuffer sourceBuffer, final ByteBuffer targetBuffer) throws SSLException {
-        final int bufferSize = getBufferSize(ssl);
-        ByteBuffer intermediateTarget = ByteBuffer.allocate(bufferSize);
+    private static SSLEngineResult encode(final SqSSL ssl, final Encoder encoder, final boolean isWrap, final ByteBuffer sourceBuffer, final ByteBuffer targetBuffer) throws SSLException {
+        if (!targetBuffer.isReadOnly()) {
+            final SSLEngineResult result = encoder.encode(sourceBuffer, targetBuffer);
+            if (result.getStatus() != Status.BUFFER_OVERFLOW) {
+                return result;
+            }
+        }
+
+        final SSLSession session = ssl.engine.getSession();
+        final int bufferSize = isWrap ? session.getPacketBufferSize() : session.getApplicationBufferSize();
+        ByteBuffer intermediateTarget = isWrap ? ssl.packetBuffer : ssl.applicationBuffer;
+        if (intermediateTarget == null || intermediateTarget.capacity() < bufferSize) {
+            intermediateTarget = ByteBuffer.allocate(bufferSize);
+        } else {
+            intermediateTarget.clear();
+        }
 
         while (true) {
             final SSLEngineResult result = encoder.encode(sourceBuffer, intermediateTarget);
             switch (result.getStatus()) {
                 case BUFFER_UNDERFLOW:
+                    keepIntermediateBuffer(ssl, isWrap, intermediateTarget);
                     return result;
 
                 case BUFFER_OVERFLOW:
@@ -288,6 +330,7 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
                     continue;
 
                 case OK:
+                    keepIntermediateBuffer(ssl, isWrap, intermediateTarget);
                     intermediateTarget.flip();
                     if (intermediateTarget.remaining() > 0) {
                         targetBuffer.put(intermediateTarget);
@@ -295,6 +338,7 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
                     return result;
 
                 case CLOSED:
+                    keepIntermediateBuffer(ssl, isWrap, intermediateTarget);
                     intermediateTarget.flip();
                     targetBuffer.put(intermediateTarget);
                     return result;
@@ -305,6 +349,14 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
         }
     }
 
+    private static void keepIntermediateBuffer(final SqSSL ssl, final boolean isWrap, final ByteBuffer buffer) {
+        if (isWrap) {
+            ssl.packetBuffer = buffer;
+        } else {
+            ssl.applicationBuffer = buffer;
+        }
+    }
+
     private static ByteBuffer enlargeBufferFrom(final ByteBuffer buffer, final int bufferSize) {
         final int delta = buffer.position() > 0 ? buffer.position() : bufferSize;
         final ByteBuffer newBuffer = ByteBuffer.allocate(bufferSize + delta);
@@ -414,7 +466,7 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
             final ByteBuffer target = asWriteBuffer(targetBuffer);
 
             try {
-                return process(ssl, source, target);
+                return process(ssl, image.options, source, target);
             } catch (final SSLHandshakeException e) {
                 return ReturnCode.GENERIC_ERROR.id();
             } catch (final SSLException e) {
@@ -424,10 +476,10 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
         }
 
         @TruffleBoundary
-        private static long process(final SqSSL ssl, final ByteBuffer source, final ByteBuffer target) throws SSLException {
+        private static long process(final SqSSL ssl, final SqueakContextOptions options, final ByteBuffer source, final ByteBuffer target) throws SSLException {
             if (ssl.state == State.UNUSED) {
                 ssl.state = State.ACCEPTING;
-                setUp(ssl);
+                setUp(ssl, options);
                 ssl.engine.setUseClientMode(false);
             }
 
@@ -470,6 +522,7 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
 
         private static void handshakeCompleted(final SqSSL ssl) {
             ssl.state = State.CONNECTED;
+            ssl.handshakes++;
         }
     }
 
@@ -520,7 +573,7 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
             final ByteBuffer target = asWriteBuffer(targetBuffer);
 
             try {
-                return processHandshake(ssl, source, target);
+                return processHandshake(ssl, image.options, source, target);
             } catch (final SSLException e) {
                 image.printToStdErr(e);
                 return ReturnCode.GENERIC_ERROR.id();
@@ -528,9 +581,9 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
         }
 
         @TruffleBoundary
-        private static long processHandshake(final SqSSL ssl, final ByteBuffer source, final ByteBuffer target) throws SSLException {
+        private static long processHandshake(final SqSSL ssl, final SqueakContextOptions options, final ByteBuffer source, final ByteBuffer target) throws SSLException {
             if (ssl.state == State.UNUSED) {
-                beginHandshake(ssl, target);
+                beginHandshake(ssl, options, target);
                 return target.position();
             } else if (ssl.state == State.CONNECTING) {
                 ssl.buffer.put(source);
@@ -542,9 +595,9 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
             }
         }
 
-        private static void beginHandshake(final SqSSL ssl, final ByteBuffer target) throws SSLException {
+        private static void beginHandshake(final SqSSL ssl, final SqueakContextOptions options, final ByteBuffer target) throws SSLException {
             ssl.state = State.CONNECTING;
-            setUp(ssl);
+            setUp(ssl, options);
             ssl.engine.setUseClientMode(true);
 
             final SSLEngineResult result = wrap(ssl, EMPTY_BUFFER, target);
@@ -583,6 +636,7 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
 
         private static void handshakeCompleted(final SqSSL ssl) {
             ssl.state = State.CONNECTED;
+            ssl.handshakes++;
             final String peerHost = ssl.engine.getPeerHost();
             if (peerHost != null) {
                 ssl.peerName = peerHost;
@@ -608,19 +662,58 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
     }
 
     @TruffleBoundary
-    private static void setUp(final SqSSL ssl) {
+    private static void setUp(final SqSSL ssl, final SqueakContextOptions options) {
         if (certificateName != null && !MiscUtils.isBlank(certificateName)) {
-            initializeWithCertificate(ssl, certificateName);
+            ssl.context = getSharedContext(certificateName, options);
         } else {
-            initializeWithDefaultCertificates(ssl);
+            ssl.context = getSharedContext(null, options);
         }
         ensureEngine(ssl);
     }
 
-    private static void initializeWithCertificate(final SqSSL ssl, final String certificate) {
+    /**
+     * An {@link SSLContext} and its session caches are shared by all SSL instances with the same
+     * certificate configuration and session cache limits, so that clients can resume sessions with a
+     * known peer and servers can resume the sessions of returning clients instead of going through a
+     * full handshake. The limits are part of the key because contexts are shared across all images
+     * running in the same VM.
+     */
+    private static final class SharedContext {
+        private final SSLContext context;
+        private final FileTime lastModified;
+
+        private SharedContext(final SSLContext context, final FileTime lastModified) {
+            this.context = context;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private static synchronized SSLContext getSharedContext(final String certificate, final SqueakContextOptions options) {
+        final String key = (certificate == null ? "" : certificate) + '#' + options.sslSessionCacheSize + '#' + options.sslSessionTimeout;
+        final FileTime lastModified = certificate == null ? null : getLastModifiedTime(certificate);
+        final SharedContext shared = SHARED_CONTEXTS.get(key);
+        if (shared != null && (lastModified == null || lastModified.equals(shared.lastModified))) {
+            return shared.context;
+        }
+        final SSLContext context = certificate == null ? createContextWithDefaultCertificates() : createContextWithCertificate(certificate);
+        configureSessionCache(context.getClientSessionContext(), options);
+        configureSessionCache(context.getServerSessionContext(), options);
+        SHARED_CONTEXTS.put(key, new SharedContext(context, lastModified));
+        return context;
+    }
+
+    private static FileTime getLastModifiedTime(final String certificate) {
+        try {
+            return Files.getLastModifiedTime(Paths.get(certificate));
+        } catch (final IOException e) {
+            throw CompilerDirectives.shouldNotReachHere("Failed to load certificate " + certificate + ". Does the file exist?", e);
+        }
+    }
+
+    private static SSLContext createContextWithCertificate(final String certificate) {
         final Path certificatePath = Paths.get(certificate);
         try {
-            ssl.context = SSLContextInitializer.createSSLContext(certificatePath);
+            return SSLContextInitializer.createSSLContext(certificatePath);
         } catch (final IOException e) {
             throw CompilerDirectives.shouldNotReachHere("Failed to load certificate " + certificate + ". Does the file exist?", e);
         } catch (final GeneralSecurityException e) {
@@ -628,18 +721,25 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
         }
     }
 
-    private static void initializeWithDefaultCertificates(final SqSSL ssl) {
+    private static SSLContext createContextWithDefaultCertificates() {
         try {
-            ssl.context = SSLContext.getInstance("TLS");
-            ssl.context.init(null, null, null);
+            final SSLContext context = SSLContext.getInstance("TLS");
+            context.init(null, null, null);
+            return context;
         } catch (final GeneralSecurityException e) {
             throw CompilerDirectives.shouldNotReachHere("Failed to initialize default certificate store", e);
         }
     }
 
+    private static void configureSessionCache(final SSLSessionContext sessionContext, final SqueakContextOptions options) {
+        sessionContext.setSessionCacheSize(options.sslSessionCacheSize);
+        sessionContext.setSessionTimeout(options.sslSessionTimeout);
+    }
+
     private static void ensureEngine(final SqSSL ssl) {
         if (ssl.serverName != null && !MiscUtils.isBlank(ssl.serverName)) {
-            ssl.engine = ssl.context.createSSLEngine(ssl.serverName, -1);
+            /* Host and port are the key for resuming client sessions. */
+            ssl.engine = ssl.context.createSSLEngine(ssl.serverName, ssl.peerPort);
         } else {
             ssl.engine = ssl.context.createSSLEngine();
         }
@@ -652,6 +752,8 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
         // TLS 1.3 details: https://tls13.ulfheim.net/
         ssl.engine.setEnabledProtocols(new String[]{"TLSv1.2"});
         ssl.buffer = ByteBuffer.allocate(getBufferSize(ssl));
+        ssl.packetBuffer = null;
+        ssl.applicationBuffer = null;
     }
 
     @GenerateNodeFactory
@@ -723,6 +825,7 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
             ssl.buffer.flip();
             final SSLEngineResult result = unwrap(ssl, ssl.buffer, target);
             checkStatus("Decrypt status", result, Status.OK, Status.BUFFER_UNDERFLOW, Status.CLOSED);
+            ssl.bytesDecrypted += result.bytesProduced();
 
             if (result.getStatus() == Status.OK || result.getStatus() == Status.BUFFER_UNDERFLOW) {
                 ssl.buffer.compact();
@@ -783,6 +886,7 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
         private static void encrypt(final SqSSL ssl, final ByteBuffer source, final ByteBuffer target) throws SSLException {
             final SSLEngineResult result = wrap(ssl, source, target);
             checkStatus("Encrypt status", result, Status.OK);
+            ssl.bytesEncrypted += result.bytesConsumed();
         }
     }
 
@@ -816,6 +920,14 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
                 case CERTIFICATE_STATE:
                     // FIXME
                     return 0L;
+                case HANDSHAKES:
+                    return ssl.handshakes;
+                case BYTES_ENCRYPTED:
+                    return ssl.bytesEncrypted;
+                case BYTES_DECRYPTED:
+                    return ssl.bytesDecrypted;
+                case PEER_PORT:
+                    return ssl.peerPort;
                 default:
                     return 0L;
             }
@@ -849,6 +961,8 @@ public final class SqueakSSL extends AbstractPrimitiveFactoryHolder {
 
             if (property == IntProperty.LOG_LEVEL) {
                 ssl.logLevel = anInteger;
+            } else if (property == IntProperty.PEER_PORT) {
+                ssl.peerPort = (int) anInteger;
             }
 
             return 1L;
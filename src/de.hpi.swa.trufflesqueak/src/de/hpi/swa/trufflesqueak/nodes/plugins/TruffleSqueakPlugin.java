@@ -20,6 +20,7 @@ import de.hpi.swa.trufflesqueak.SqueakLanguage;
 import de.hpi.swa.trufflesqueak.exceptions.PrimitiveExceptions.PrimitiveFailed;
 import de.hpi.swa.trufflesqueak.image.SqueakImageContext;
 import de.hpi.swa.trufflesqueak.interop.JavaObjectWrapper;
+import de.hpi.swa.trufflesqueak.model.ArrayObject;
 import de.hpi.swa.trufflesqueak.model.NativeObject;
 import de.hpi.swa.trufflesqueak.model.PointersObject;
 import de.hpi.swa.trufflesqueak.model.layout.ObjectLayouts.FORM;
@@ -70,6 +71,27 @@ public final class TruffleSqueakPlugin extends AbstractPrimitiveFactoryHolder {
         }
     }
 
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveGetMethodCacheStatistics")
+    protected abstract static class PrimGetMethodCacheStatisticsNode extends AbstractPrimitiveNode {
+        @Specialization
+        protected static final ArrayObject doGet(@SuppressWarnings("unused") final Object receiver,
+                        @CachedContext(SqueakLanguage.class) final SqueakImageContext image) {
+            return image.asArrayOfLongs(image.getMethodCacheStatistics());
+        }
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveResetMethodCacheStatistics")
+    protected abstract static class PrimResetMethodCacheStatisticsNode extends AbstractPrimitiveNode {
+        @Specialization
+        protected static final Object doReset(final Object receiver,
+                        @CachedContext(SqueakLanguage.class) final SqueakImageContext image) {
+            image.resetMethodCacheStatistics();
+            return receiver;
+        }
+    }
+
     @GenerateNodeFactory
     @ImportStatic(FORM.class)
     @SqueakPrimitive(names = "primitiveFormToBufferedImage")
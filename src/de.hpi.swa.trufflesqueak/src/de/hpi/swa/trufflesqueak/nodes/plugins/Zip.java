@@ -5,6 +5,9 @@
  */
 package de.hpi.swa.trufflesqueak.nodes.plugins;
 
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
@@ -36,6 +39,9 @@ public final class Zip {
     private static final int DeflateWindowMask = 0x7FFF;
     private static final int DeflateWindowSize = 32768;
     private static final int MaxBits = 16;
+    /* Ranges from this size on are checksummed by java.util.zip, which is intrinsified or native. */
+    private static final int JdkChecksumThreshold = 64;
+    private static final int AdlerBase = 65521;
     private static final int StateNoMoreData = 1;
 
     @CompilationFinal private int readStreamInstSize;
@@ -549,6 +555,9 @@ public final class Zip {
         final byte[] bytes = collection.getByteStorage();
         int s1 = (int) (adler32 & 0xFFFF);
         int s2 = (int) (adler32 >> 16 & 0xFFFF);
+        if (stopIndex - startIndex + 1 >= JdkChecksumThreshold && s1 < AdlerBase && s2 < AdlerBase) {
+            return updateAdler32(s1, s2, bytes, startIndex - 1, stopIndex - startIndex + 1);
+        }
         for (int i = startIndex - 1; i <= stopIndex - 1; i++) {
             final int b = Byte.toUnsignedInt(bytes[i]);
             s1 = mod(s1 + b, 65521);
@@ -557,18 +566,103 @@ public final class Zip {
         return Integer.toUnsignedLong((s2 << 16) + s1);
     }
 
+    /*
+     * java.util.zip.Adler32 always starts from 1, so its result is combined with the given sums as
+     * in zlib's adler32_combine: s1 grows by the sum of the bytes, s2 additionally by length * s1.
+     */
+    @TruffleBoundary
+    private static long updateAdler32(final int s1, final int s2, final byte[] bytes, final int offset, final int length) {
+        final Adler32 checksum = new Adler32();
+        checksum.update(bytes, offset, length);
+        final long value = checksum.getValue();
+        final long sum1 = (value & 0xFFFF) + AdlerBase - 1;
+        final long sum2 = (value >> 16 & 0xFFFF) + AdlerBase - length % AdlerBase;
+        final long newS1 = (s1 + sum1) % AdlerBase;
+        final long newS2 = (s2 + sum2 + (long) (length % AdlerBase) * s1) % AdlerBase;
+        return newS2 << 16 | newS1;
+    }
+
     /* Primitive. Update a 32bit CRC value. */
 
     /* DeflatePlugin>>#primitiveUpdateGZipCrc32 */
     public static long primitiveUpdateGZipCrc32(final NativeObject collection, final int startIndex, final int stopIndex, final long crc) {
-        long result = crc;
         final byte[] bytes = collection.getByteStorage();
+        if (stopIndex - startIndex + 1 >= JdkChecksumThreshold && 0 <= crc && crc <= 0xFFFFFFFFL) {
+            return updateCrc32(crc, bytes, startIndex - 1, stopIndex - startIndex + 1);
+        }
+        long result = crc;
         for (int i = startIndex - 1; i <= stopIndex - 1; i++) {
             result = zipCrcTable[(int) ((result ^ Byte.toUnsignedInt(bytes[i])) & 0xFF)] ^ result >> 8;
         }
         return result;
     }
 
+    /*
+     * The image passes the CRC register itself, while java.util.zip.CRC32 always starts from all
+     * ones and answers the inverted register. As the register after some bytes is affine in its
+     * initial value, the difference to the all-ones start is shifted through length zero bytes, as
+     * in zlib's crc32_combine, and added to the result of CRC32.
+     */
+    @TruffleBoundary
+    private static long updateCrc32(final long crc, final byte[] bytes, final int offset, final int length) {
+        final CRC32 checksum = new CRC32();
+        checksum.update(bytes, offset, length);
+        final long register = checksum.getValue() ^ 0xFFFFFFFFL;
+        final int difference = (int) (crc ^ 0xFFFFFFFFL);
+        if (difference == 0) {
+            return register;
+        }
+        int shifted = difference;
+        int operatorIndex = 0;
+        for (int n = length; n != 0; n >>>= 1) {
+            if ((n & 1) != 0) {
+                shifted = gf2MatrixTimes(CRC32_ZERO_BYTES_OPERATORS[operatorIndex], shifted);
+            }
+            operatorIndex++;
+        }
+        return register ^ Integer.toUnsignedLong(shifted);
+    }
+
+    /* Operators shifting a CRC register through 2^i zero bytes, as GF(2) matrices of 32 columns. */
+    private static final int[][] CRC32_ZERO_BYTES_OPERATORS = createCrc32ZeroBytesOperators();
+
+    private static int[][] createCrc32ZeroBytesOperators() {
+        int[] operator = new int[Integer.SIZE];
+        /* One zero bit: the reversed polynomial for the lowest bit, a shift for all others. */
+        operator[0] = 0xEDB88320;
+        for (int i = 1; i < Integer.SIZE; i++) {
+            operator[i] = 1 << i - 1;
+        }
+        for (int i = 0; i < 3; i++) {
+            operator = gf2MatrixSquare(operator);
+        }
+        final int[][] operators = new int[Integer.SIZE - 1][];
+        for (int i = 0; i < operators.length; i++) {
+            operators[i] = operator;
+            operator = gf2MatrixSquare(operator);
+        }
+        return operators;
+    }
+
+    private static int gf2MatrixTimes(final int[] matrix, final int vector) {
+        int sum = 0;
+        int remaining = vector;
+        for (int i = 0; remaining != 0; i++, remaining >>>= 1) {
+            if ((remaining & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static int[] gf2MatrixSquare(final int[] matrix) {
+        final int[] square = new int[Integer.SIZE];
+        for (int i = 0; i < Integer.SIZE; i++) {
+            square[i] = gf2MatrixTimes(matrix, matrix[i]);
+        }
+        return square;
+    }
+
     /* DeflatePlugin>>#primitiveZipSendBlock */
     public long primitiveZipSendBlock(final PointersObject rcvr, final PointersObject litStream, final PointersObject distStream,
                     final PointersObject litTree, final PointersObject distTree) {
@@ -776,11 +870,17 @@ public final class Zip {
                     zipSourcePos = oldPos;
                     return;
                 } else {
-                    final int dstPos = zipReadLimit;
-                    final int srcPos = zipReadLimit - distance;
-                    // Cannot use System#arraycopy here
-                    for (int i = 1; i <= length; i += 1) {
-                        zipCollection[dstPos + i] = zipCollection[srcPos + i];
+                    final int dstPos = zipReadLimit + 1;
+                    final int srcPos = zipReadLimit + 1 - distance;
+                    /*
+                     * Matches may overlap their own output, repeating the last distance bytes. Copy
+                     * in chunks that do not overlap, which stay aligned to the repeated pattern.
+                     */
+                    int copied = 0;
+                    while (copied < length) {
+                        final int chunk = Math.min(length - copied, distance + copied);
+                        System.arraycopy(zipCollection, srcPos, zipCollection, dstPos + copied, chunk);
+                        copied += chunk;
                     }
                     zipReadLimit += length;
                 }
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2017-2021 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.trufflesqueak.nodes.plugins;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+import de.hpi.swa.trufflesqueak.exceptions.PrimitiveExceptions.PrimitiveFailed;
+import de.hpi.swa.trufflesqueak.util.LogUtils;
+
+/**
+ * Compresses and decompresses whole buffers and file regions with java.util.zip in a single
+ * primitive call, instead of one primitiveDeflateBlock or primitiveInflateDecompressBlock call per
+ * block. Supports the formats written by ZipWriteStream (raw deflate data), ZLibWriteStream, and
+ * GZipWriteStream. {@link Compressor}s are also handed to the image as hidden objects of handles,
+ * for compressing a stream of buffers.
+ */
+final class ZipCodec {
+    static final int FORMAT_RAW = 0;
+    static final int FORMAT_ZLIB = 1;
+    static final int FORMAT_GZIP = 2;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /* Magic, deflate method, no flags, no modification time, no extra flags, unknown OS. */
+    private static final byte[] GZIP_HEADER = {0x1F, (byte) 0x8B, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xFF};
+
+    private ZipCodec() {
+    }
+
+    static boolean isValidFormat(final long format) {
+        return FORMAT_RAW <= format && format <= FORMAT_GZIP;
+    }
+
+    static boolean isValidLevel(final long level) {
+        return level == Deflater.DEFAULT_COMPRESSION || Deflater.NO_COMPRESSION <= level && level <= Deflater.BEST_COMPRESSION;
+    }
+
+    /**
+     * A deflater that adds the header and trailer of its format. Input is passed in with
+     * {@link #update}, and compressed data is written to the given stream as it becomes available.
+     */
+    static final class Compressor {
+        private final Deflater deflater;
+        private final CRC32 crc;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private boolean hasWrittenHeader;
+        private boolean isFinished;
+
+        Compressor(final int format, final int level) {
+            deflater = new Deflater(level, format != FORMAT_ZLIB);
+            crc = format == FORMAT_GZIP ? new CRC32() : null;
+        }
+
+        boolean isFinished() {
+            return isFinished;
+        }
+
+        void update(final byte[] input, final int offset, final int length, final OutputStream output) throws IOException {
+            assert !isFinished;
+            writeHeaderIfNecessary(output);
+            if (crc != null) {
+                crc.update(input, offset, length);
+            }
+            deflater.setInput(input, offset, length);
+            while (!deflater.needsInput()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+        }
+
+        void finish(final OutputStream output) throws IOException {
+            assert !isFinished;
+            isFinished = true;
+            try {
+                writeHeaderIfNecessary(output);
+                deflater.finish();
+                while (!deflater.finished()) {
+                    output.write(buffer, 0, deflater.deflate(buffer));
+                }
+                if (crc != null) {
+                    writeIntLE(output, crc.getValue());
+                    writeIntLE(output, deflater.getBytesRead());
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+
+        private void writeHeaderIfNecessary(final OutputStream output) throws IOException {
+            if (!hasWrittenHeader) {
+                hasWrittenHeader = true;
+                if (crc != null) {
+                    output.write(GZIP_HEADER);
+                }
+            }
+        }
+
+        private static void writeIntLE(final OutputStream output, final long value) throws IOException {
+            output.write((int) value);
+            output.write((int) (value >> 8));
+            output.write((int) (value >> 16));
+            output.write((int) (value >> 24));
+        }
+    }
+
+    @TruffleBoundary(transferToInterpreterOnException = false)
+    static byte[] compress(final byte[] input, final int format, final int level) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(input.length / 2, 64));
+        final Compressor compressor = new Compressor(format, level);
+        try {
+            compressor.update(input, 0, input.length, output);
+            compressor.finish(output);
+        } catch (final IOException e) {
+            throw primitiveFailed("Failed to compress bytes", e);
+        }
+        return output.toByteArray();
+    }
+
+    @TruffleBoundary(transferToInterpreterOnException = false)
+    static byte[] decompress(final byte[] input, final int format) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(input.length * 4, 64));
+        try {
+            decompress(new ByteArrayInputStream(input), format, output);
+        } catch (final IOException e) {
+            throw primitiveFailed("Failed to decompress bytes", e);
+        }
+        return output.toByteArray();
+    }
+
+    @TruffleBoundary(transferToInterpreterOnException = false)
+    static byte[] update(final Compressor compressor, final byte[] input) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            compressor.update(input, 0, input.length, output);
+        } catch (final IOException e) {
+            throw primitiveFailed("Failed to compress bytes", e);
+        }
+        return output.toByteArray();
+    }
+
+    @TruffleBoundary(transferToInterpreterOnException = false)
+    static byte[] finish(final Compressor compressor) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            compressor.finish(output);
+        } catch (final IOException e) {
+            throw primitiveFailed("Failed to compress bytes", e);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Compresses count bytes of source from position on and writes the result to destination at its
+     * current position. The position of source is left unchanged.
+     *
+     * @return the number of bytes written
+     */
+    @TruffleBoundary(transferToInterpreterOnException = false)
+    static long compress(final SeekableByteChannel source, final long position, final long count, final SeekableByteChannel destination, final int format, final int level) {
+        final Compressor compressor = new Compressor(format, level);
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        try {
+            final long start = destination.position();
+            final OutputStream output = Channels.newOutputStream(destination);
+            try (InputStream input = new ChannelRegionInputStream(source, position, count)) {
+                int numRead;
+                while ((numRead = input.read(buffer)) > 0) {
+                    compressor.update(buffer, 0, numRead, output);
+                }
+            }
+            compressor.finish(output);
+            return destination.position() - start;
+        } catch (final IOException e) {
+            throw primitiveFailed("Failed to compress file region", e);
+        }
+    }
+
+    /**
+     * Decompresses count bytes of source from position on and writes the result to destination at
+     * its current position. The position of source is left unchanged.
+     *
+     * @return the number of bytes written
+     */
+    @TruffleBoundary(transferToInterpreterOnException = false)
+    static long decompress(final SeekableByteChannel source, final long position, final long count, final SeekableByteChannel destination, final int format) {
+        try {
+            final long start = destination.position();
+            try (InputStream input = new ChannelRegionInputStream(source, position, count)) {
+                decompress(input, format, Channels.newOutputStream(destination));
+            }
+            return destination.position() - start;
+        } catch (final IOException e) {
+            throw primitiveFailed("Failed to decompress file region", e);
+        }
+    }
+
+    /* Fails on truncated or corrupt data, including gzip members with a wrong CRC. */
+    private static void decompress(final InputStream input, final int format, final OutputStream output) throws IOException {
+        final InflaterInputStream inflaterStream;
+        final Inflater inflater;
+        if (format == FORMAT_GZIP) {
+            inflater = null;
+            inflaterStream = new GZIPInputStream(input, BUFFER_SIZE);
+        } else {
+            inflater = new Inflater(format == FORMAT_RAW);
+            inflaterStream = new InflaterInputStream(input, inflater, BUFFER_SIZE);
+        }
+        try {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int numRead;
+            while ((numRead = inflaterStream.read(buffer)) > 0) {
+                output.write(buffer, 0, numRead);
+            }
+        } finally {
+            if (inflater != null) {
+                inflater.end();
+            } else {
+                inflaterStream.close();
+            }
+        }
+    }
+
+    private static PrimitiveFailed primitiveFailed(final String message, final IOException e) {
+        LogUtils.IO.log(Level.FINE, message, e);
+        return PrimitiveFailed.GENERIC_ERROR;
+    }
+
+    /*
+     * Reads a region of a channel. Closing it restores the position the channel had before, but does
+     * not close the channel.
+     */
+    private static final class ChannelRegionInputStream extends InputStream {
+        private final SeekableByteChannel channel;
+        private final long originalPosition;
+        private long position;
+        private long remaining;
+
+        ChannelRegionInputStream(final SeekableByteChannel channel, final long position, final long count) throws IOException {
+            this.channel = channel;
+            originalPosition = channel.position();
+            this.position = position;
+            remaining = count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.position(originalPosition);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] singleByte = new byte[1];
+            return read(singleByte, 0, 1) == 1 ? singleByte[0] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            channel.position(position);
+            final int numRead = channel.read(ByteBuffer.wrap(bytes, offset, (int) Math.min(length, remaining)));
+            if (numRead <= 0) {
+                remaining = 0;
+                return -1;
+            }
+            position += numRead;
+            remaining -= numRead;
+            return numRead;
+        }
+    }
+}
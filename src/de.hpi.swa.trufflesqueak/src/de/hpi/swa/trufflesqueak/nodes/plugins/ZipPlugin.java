@@ -5,6 +5,7 @@
  */
 package de.hpi.swa.trufflesqueak.nodes.plugins;
 
+import java.nio.channels.SeekableByteChannel;
 import java.util.List;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
@@ -14,17 +15,127 @@ import com.oracle.truffle.api.dsl.NodeFactory;
 import com.oracle.truffle.api.dsl.Specialization;
 
 import de.hpi.swa.trufflesqueak.SqueakLanguage;
+import de.hpi.swa.trufflesqueak.exceptions.PrimitiveExceptions.PrimitiveFailed;
 import de.hpi.swa.trufflesqueak.image.SqueakImageContext;
 import de.hpi.swa.trufflesqueak.model.NativeObject;
+import de.hpi.swa.trufflesqueak.model.NilObject;
 import de.hpi.swa.trufflesqueak.model.PointersObject;
 import de.hpi.swa.trufflesqueak.nodes.primitives.AbstractPrimitiveFactoryHolder;
 import de.hpi.swa.trufflesqueak.nodes.primitives.AbstractPrimitiveNode;
+import de.hpi.swa.trufflesqueak.nodes.primitives.PrimitiveFallbacks.BinaryPrimitiveFallback;
 import de.hpi.swa.trufflesqueak.nodes.primitives.PrimitiveFallbacks.QuaternaryPrimitiveFallback;
 import de.hpi.swa.trufflesqueak.nodes.primitives.PrimitiveFallbacks.QuinaryPrimitiveFallback;
+import de.hpi.swa.trufflesqueak.nodes.primitives.PrimitiveFallbacks.SenaryPrimitiveFallback;
+import de.hpi.swa.trufflesqueak.nodes.primitives.PrimitiveFallbacks.SeptenaryPrimitiveFallback;
 import de.hpi.swa.trufflesqueak.nodes.primitives.PrimitiveFallbacks.TernaryPrimitiveFallback;
 import de.hpi.swa.trufflesqueak.nodes.primitives.SqueakPrimitive;
 
 public final class ZipPlugin extends AbstractPrimitiveFactoryHolder {
+    /*
+     * Primitives compressing or decompressing whole byte arrays, file regions, or streams of byte
+     * arrays in one call each (see ZipCodec). Formats are 0 for raw deflate data, 1 for zlib, and 2
+     * for gzip, levels range from 0 to 9, or -1 for the default.
+     */
+    protected abstract static class AbstractZipCodecPrimitiveNode extends AbstractPrimitiveNode {
+        protected static final boolean isValidFormat(final long format) {
+            return ZipCodec.isValidFormat(format);
+        }
+
+        protected static final boolean isValidLevel(final long level) {
+            return ZipCodec.isValidLevel(level);
+        }
+
+        protected static final boolean isFileHandle(final PointersObject handle) {
+            return handle.getSqueakClass().isPoint() && handle.getHiddenObject() instanceof SeekableByteChannel;
+        }
+
+        protected static final boolean isCompressorHandle(final PointersObject handle) {
+            return handle.getSqueakClass().isPoint() && handle.getHiddenObject() instanceof ZipCodec.Compressor;
+        }
+
+        protected static final ZipCodec.Compressor getUnfinishedCompressor(final PointersObject handle) {
+            final ZipCodec.Compressor compressor = (ZipCodec.Compressor) handle.getHiddenObject();
+            if (compressor.isFinished()) {
+                throw PrimitiveFailed.andTransferToInterpreter();
+            }
+            return compressor;
+        }
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveCompressBytes")
+    protected abstract static class PrimCompressBytesNode extends AbstractZipCodecPrimitiveNode implements QuaternaryPrimitiveFallback {
+        @Specialization(guards = {"bytes.isByteType()", "isValidFormat(format)", "isValidLevel(level)"})
+        protected static final NativeObject doCompress(@SuppressWarnings("unused") final Object receiver, final NativeObject bytes, final long format, final long level,
+                        @CachedContext(SqueakLanguage.class) final SqueakImageContext image) {
+            return image.asByteArray(ZipCodec.compress(bytes.getByteStorage(), (int) format, (int) level));
+        }
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveCompressFileRegion")
+    protected abstract static class PrimCompressFileRegionNode extends AbstractZipCodecPrimitiveNode implements SeptenaryPrimitiveFallback {
+        @Specialization(guards = {"isFileHandle(source)", "position >= 0", "count >= 0", "isFileHandle(destination)", "source != destination", "isValidFormat(format)",
+                        "isValidLevel(level)"})
+        protected static final long doCompress(@SuppressWarnings("unused") final Object receiver, final PointersObject source, final long position, final long count,
+                        final PointersObject destination, final long format, final long level) {
+            return ZipCodec.compress((SeekableByteChannel) source.getHiddenObject(), position, count, (SeekableByteChannel) destination.getHiddenObject(), (int) format, (int) level);
+        }
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveCompressorCreate")
+    protected abstract static class PrimCompressorCreateNode extends AbstractZipCodecPrimitiveNode implements TernaryPrimitiveFallback {
+        @Specialization(guards = {"isValidFormat(format)", "isValidLevel(level)"})
+        @TruffleBoundary
+        protected static final PointersObject doCreate(@SuppressWarnings("unused") final Object receiver, final long format, final long level,
+                        @CachedContext(SqueakLanguage.class) final SqueakImageContext image) {
+            return PointersObject.newHandleWithHiddenObject(image, new ZipCodec.Compressor((int) format, (int) level));
+        }
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveCompressorFinish")
+    protected abstract static class PrimCompressorFinishNode extends AbstractZipCodecPrimitiveNode implements BinaryPrimitiveFallback {
+        @Specialization(guards = {"isCompressorHandle(handle)"})
+        protected static final NativeObject doFinish(@SuppressWarnings("unused") final Object receiver, final PointersObject handle,
+                        @CachedContext(SqueakLanguage.class) final SqueakImageContext image) {
+            final NativeObject result = image.asByteArray(ZipCodec.finish(getUnfinishedCompressor(handle)));
+            handle.setHiddenObject(NilObject.SINGLETON);
+            return result;
+        }
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveCompressorUpdate")
+    protected abstract static class PrimCompressorUpdateNode extends AbstractZipCodecPrimitiveNode implements TernaryPrimitiveFallback {
+        @Specialization(guards = {"isCompressorHandle(handle)", "bytes.isByteType()"})
+        protected static final NativeObject doUpdate(@SuppressWarnings("unused") final Object receiver, final PointersObject handle, final NativeObject bytes,
+                        @CachedContext(SqueakLanguage.class) final SqueakImageContext image) {
+            return image.asByteArray(ZipCodec.update(getUnfinishedCompressor(handle), bytes.getByteStorage()));
+        }
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveDecompressBytes")
+    protected abstract static class PrimDecompressBytesNode extends AbstractZipCodecPrimitiveNode implements TernaryPrimitiveFallback {
+        @Specialization(guards = {"bytes.isByteType()", "isValidFormat(format)"})
+        protected static final NativeObject doDecompress(@SuppressWarnings("unused") final Object receiver, final NativeObject bytes, final long format,
+                        @CachedContext(SqueakLanguage.class) final SqueakImageContext image) {
+            return image.asByteArray(ZipCodec.decompress(bytes.getByteStorage(), (int) format));
+        }
+    }
+
+    @GenerateNodeFactory
+    @SqueakPrimitive(names = "primitiveDecompressFileRegion")
+    protected abstract static class PrimDecompressFileRegionNode extends AbstractZipCodecPrimitiveNode implements SenaryPrimitiveFallback {
+        @Specialization(guards = {"isFileHandle(source)", "position >= 0", "count >= 0", "isFileHandle(destination)", "source != destination", "isValidFormat(format)"})
+        protected static final long doDecompress(@SuppressWarnings("unused") final Object receiver, final PointersObject source, final long position, final long count,
+                        final PointersObject destination, final long format) {
+            return ZipCodec.decompress((SeekableByteChannel) source.getHiddenObject(), position, count, (SeekableByteChannel) destination.getHiddenObject(), (int) format);
+        }
+    }
+
     @GenerateNodeFactory
     @SqueakPrimitive(names = "primitiveDeflateBlock")
     protected abstract static class PrimDeflateBlockNode extends AbstractPrimitiveNode implements QuaternaryPrimitiveFallback {
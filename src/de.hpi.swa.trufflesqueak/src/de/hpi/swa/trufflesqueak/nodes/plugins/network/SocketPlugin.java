@@ -384,12 +384,7 @@ public final class SocketPlugin extends AbstractPrimitiveFactoryHolder {
     protected abstract static class PrimSocketReceiveDataAvailableNode extends AbstractPrimitiveNode implements BinaryPrimitiveFallback {
         @Specialization
         protected static final boolean doDataAvailable(@SuppressWarnings("unused") final Object receiver, final PointersObject sd) {
-            try {
-                return getSocketOrPrimFail(sd).isDataAvailable();
-            } catch (final IOException e) {
-                LogUtils.SOCKET.log(Level.FINE, "Checking for available data failed", e);
-                return BooleanObject.FALSE;
-            }
+            return getSocketOrPrimFail(sd).isDataAvailable();
         }
     }
 
@@ -544,10 +539,10 @@ public final class SocketPlugin extends AbstractPrimitiveFactoryHolder {
             final SqueakSocket socket;
             try {
                 if (socketTypeProfile.profile(socketType == 1)) {
-                    socket = new SqueakUDPSocket();
+                    socket = new SqueakUDPSocket(image, semaphoreIndex, aReadSemaphore, aWriteSemaphore);
                 } else {
                     assert socketType == 0;
-                    socket = new SqueakTCPSocket();
+                    socket = new SqueakTCPSocket(image, semaphoreIndex, aReadSemaphore, aWriteSemaphore);
                 }
             } catch (final IOException e) {
                 throw PrimitiveFailed.andTransferToInterpreter();
@@ -570,7 +565,7 @@ public final class SocketPlugin extends AbstractPrimitiveFactoryHolder {
                         final long writeSemaphoreIndex,
                         @CachedContext(SqueakLanguage.class) final SqueakImageContext image) {
             try {
-                return PointersObject.newHandleWithHiddenObject(image, getSocketOrPrimFail(sd).accept());
+                return PointersObject.newHandleWithHiddenObject(image, getSocketOrPrimFail(sd).accept(image, semaphoreIndex, readSemaphoreIndex, writeSemaphoreIndex));
             } catch (final IOException e) {
                 LogUtils.SOCKET.log(Level.FINE, "Accepting socket failed", e);
                 throw PrimitiveFailed.andTransferToInterpreter();
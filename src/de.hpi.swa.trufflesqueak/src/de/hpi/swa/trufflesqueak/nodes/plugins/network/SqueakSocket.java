@@ -11,14 +11,14 @@ import java.net.SocketAddress;
 import java.net.SocketOption;
 import java.nio.ByteBuffer;
 import java.nio.channels.NetworkChannel;
+import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
-import java.util.Iterator;
-import java.util.Set;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 
 import de.hpi.swa.trufflesqueak.exceptions.SqueakExceptions.SqueakException;
+import de.hpi.swa.trufflesqueak.image.SqueakImageContext;
+import de.hpi.swa.trufflesqueak.nodes.interrupts.CheckForInterruptsState;
 import de.hpi.swa.trufflesqueak.util.LogUtils;
 
 public abstract class SqueakSocket {
@@ -42,7 +42,15 @@ public abstract class SqueakSocket {
         }
     }
 
-    protected final Selector selector;
+    private final CheckForInterruptsState interrupt;
+    private final long connectionSemaphoreIndex;
+    private final long readSemaphoreIndex;
+    private final long writeSemaphoreIndex;
+
+    /* Set and updated by the selector thread. */
+    private volatile SelectionKey selectionKey;
+    private volatile boolean readable;
+    private volatile boolean writable = true;
 
     protected boolean listening;
 
@@ -51,8 +59,12 @@ public abstract class SqueakSocket {
      * has JDK-specific packages.
      */
     @TruffleBoundary
-    protected SqueakSocket() throws IOException {
-        selector = Selector.open();
+    protected SqueakSocket(final SqueakImageContext image, final long connectionSemaphoreIndex, final long readSemaphoreIndex, final long writeSemaphoreIndex) throws IOException {
+        interrupt = image.interrupt;
+        this.connectionSemaphoreIndex = connectionSemaphoreIndex;
+        this.readSemaphoreIndex = readSemaphoreIndex;
+        this.writeSemaphoreIndex = writeSemaphoreIndex;
+        SqueakSocketSelector.getInstance(); /* Fail early if no selector can be opened. */
         listening = false;
     }
 
@@ -72,64 +84,94 @@ public abstract class SqueakSocket {
 
     protected abstract void listenOn(long port, long backlogSize) throws IOException;
 
-    protected abstract SqueakSocket accept() throws IOException;
+    protected abstract SqueakSocket accept(SqueakImageContext image, long newConnectionSemaphoreIndex, long newReadSemaphoreIndex, long newWriteSemaphoreIndex) throws IOException;
 
     protected abstract boolean isSendDone() throws IOException;
 
-    @TruffleBoundary
-    protected final long sendData(final byte[] data, final int start, final int count) throws IOException {
-        final ByteBuffer buffer = ByteBuffer.wrap(data, start, count);
-        selector.selectNow();
-        final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
-        while (keys.hasNext()) {
-            final SelectionKey key = keys.next();
-            if (key.isWritable()) {
-                final long written = sendDataTo(buffer, key);
-                LogUtils.SOCKET.finer(() -> this + " written: " + written);
-                keys.remove();
-                return written;
-            }
+    protected final void register(final SelectableChannel channel, final int ops) throws IOException {
+        SqueakSocketSelector.getInstance().register(this, channel, ops);
+    }
+
+    protected final void armInterest(final int ops) throws IOException {
+        SqueakSocketSelector.getInstance().addInterest(this, ops);
+    }
+
+    final SelectionKey getSelectionKey() {
+        return selectionKey;
+    }
+
+    final void setSelectionKey(final SelectionKey key) {
+        selectionKey = key;
+    }
+
+    /* Called by the selector thread. */
+    final void onReady(final int readyOps) {
+        if ((readyOps & (SelectionKey.OP_CONNECT | SelectionKey.OP_ACCEPT)) != 0) {
+            signalSemaphore(connectionSemaphoreIndex);
         }
+        if ((readyOps & SelectionKey.OP_READ) != 0) {
+            readable = true;
+            signalSemaphore(readSemaphoreIndex);
+        }
+        if ((readyOps & SelectionKey.OP_WRITE) != 0) {
+            writable = true;
+            signalSemaphore(writeSemaphoreIndex);
+        }
+    }
 
-        throw new IOException("No writable key found");
+    private void signalSemaphore(final long index) {
+        if (index > 0) {
+            interrupt.signalSemaphoreWithIndex((int) index);
+        }
     }
 
-    protected abstract long sendDataTo(ByteBuffer data, SelectionKey key) throws IOException;
+    protected final boolean isWritable() {
+        return writable;
+    }
 
     @TruffleBoundary
-    protected final boolean isDataAvailable() throws IOException {
-        selector.selectNow();
-        final Set<SelectionKey> keys = selector.selectedKeys();
-        for (final SelectionKey key : keys) {
-            if (key.isReadable()) {
-                LogUtils.SOCKET.finer(() -> this + " data available");
-                return true;
-            }
+    protected final long sendData(final byte[] data, final int start, final int count) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(data, start, count);
+        final long written = sendDataTo(buffer);
+        LogUtils.SOCKET.finer(() -> this + " written: " + written);
+        if (buffer.hasRemaining()) {
+            /* Send buffer is full, signal the write semaphore once there is space again. */
+            writable = false;
+            armInterest(SelectionKey.OP_WRITE);
         }
+        return written;
+    }
+
+    protected abstract long sendDataTo(ByteBuffer data) throws IOException;
 
-        LogUtils.SOCKET.finer(() -> this + " no data available");
-        return false;
+    @TruffleBoundary
+    protected final boolean isDataAvailable() {
+        final boolean isAvailable = readable;
+        LogUtils.SOCKET.finer(() -> this + (isAvailable ? " data available" : " no data available"));
+        return isAvailable;
     }
 
     @TruffleBoundary
     protected final long receiveData(final byte[] data, final int start, final int count) throws IOException {
         final ByteBuffer buffer = ByteBuffer.wrap(data, start, count);
-        selector.selectNow();
-        final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
-        while (keys.hasNext()) {
-            final SelectionKey key = keys.next();
-
-            if (key.isReadable()) {
-                final long received = receiveDataFrom(key, buffer);
-                LogUtils.SOCKET.finer(() -> this + " received: " + received);
-                keys.remove();
-                return received;
-            }
+        final long received = receiveDataFrom(buffer);
+        if (received < 0) {
+            /* Other end closed, the channel stays readable forever, so do not re-arm. */
+            readable = false;
+            signalSemaphore(connectionSemaphoreIndex);
+            return 0;
+        }
+        LogUtils.SOCKET.finer(() -> this + " received: " + received);
+        if (received < count) {
+            /* Probably drained, signal the read semaphore once more data arrives. */
+            readable = false;
+            armInterest(SelectionKey.OP_READ);
         }
-        return 0;
+        return received;
     }
 
-    protected abstract long receiveDataFrom(SelectionKey key, ByteBuffer data) throws IOException;
+    /** Answers the number of bytes received, or -1 if the other end has been closed. */
+    protected abstract long receiveDataFrom(ByteBuffer data) throws IOException;
 
     protected final boolean supportsOption(final String name) {
         return asNetworkChannel().supportedOptions().stream().anyMatch(o -> o.name().equals(name));
@@ -160,9 +202,14 @@ public abstract class SqueakSocket {
         asNetworkChannel().setOption(opt, (T) value);
     }
 
+    /* Subclasses close their channels first. */
     @TruffleBoundary
     protected void close() throws IOException {
-        selector.close();
+        final SelectionKey key = selectionKey;
+        if (key != null) {
+            key.cancel();
+        }
+        SqueakSocketSelector.getInstance().wakeup();
     }
 
     protected static InetSocketAddress castAddress(final SocketAddress address) {
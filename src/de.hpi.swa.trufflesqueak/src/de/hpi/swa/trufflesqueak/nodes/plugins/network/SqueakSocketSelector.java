@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2017-2021 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.trufflesqueak.nodes.plugins.network;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+import de.hpi.swa.trufflesqueak.util.LogUtils;
+
+/**
+ * A single selector thread shared by all {@link SqueakSocket}s. Readiness is reported to the
+ * sockets, which signal their semaphores. Ready operations are removed from the interest set until
+ * the socket re-arms them, so that the selector does not spin on level-triggered readiness.
+ * Registrations and interest changes are queued and applied by the selector thread itself, because
+ * they would otherwise block while a select is in progress.
+ */
+final class SqueakSocketSelector implements Runnable {
+    private static final String SELECTOR_THREAD_NAME = "TruffleSqueakSocketSelector";
+
+    private static SqueakSocketSelector instance;
+
+    private final Selector selector;
+    private final ConcurrentLinkedQueue<Runnable> pendingUpdates = new ConcurrentLinkedQueue<>();
+
+    private SqueakSocketSelector() throws IOException {
+        selector = Selector.open();
+    }
+
+    @TruffleBoundary
+    static synchronized SqueakSocketSelector getInstance() throws IOException {
+        if (instance == null) {
+            instance = new SqueakSocketSelector();
+            final Thread thread = new Thread(instance, SELECTOR_THREAD_NAME);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return instance;
+    }
+
+    void register(final SqueakSocket socket, final SelectableChannel channel, final int ops) {
+        execute(() -> {
+            try {
+                socket.setSelectionKey(channel.register(selector, ops, socket));
+            } catch (final ClosedChannelException e) {
+                LogUtils.SOCKET.finer(() -> socket + " closed before registration");
+            }
+        });
+    }
+
+    void addInterest(final SqueakSocket socket, final int ops) {
+        execute(() -> {
+            final SelectionKey key = socket.getSelectionKey();
+            if (key != null && key.isValid()) {
+                key.interestOps(key.interestOps() | ops);
+            }
+        });
+    }
+
+    /* Lets the selector deregister cancelled keys, which releases the channels. */
+    void wakeup() {
+        selector.wakeup();
+    }
+
+    private void execute(final Runnable update) {
+        pendingUpdates.add(update);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        while (selector.isOpen()) {
+            try {
+                selector.select();
+                Runnable update;
+                while ((update = pendingUpdates.poll()) != null) {
+                    update.run();
+                }
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        final int readyOps = key.readyOps();
+                        key.interestOps(key.interestOps() & ~readyOps);
+                        ((SqueakSocket) key.attachment()).onReady(readyOps);
+                    } catch (final CancelledKeyException e) {
+                        // Socket closed concurrently.
+                    }
+                }
+            } catch (final IOException | CancelledKeyException e) {
+                LogUtils.SOCKET.log(Level.FINE, "Socket selector failed", e);
+            }
+        }
+    }
+}
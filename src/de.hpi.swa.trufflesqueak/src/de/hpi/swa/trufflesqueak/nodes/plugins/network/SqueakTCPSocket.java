@@ -14,25 +14,26 @@ import java.nio.channels.NetworkChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
-import java.util.Iterator;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 
+import de.hpi.swa.trufflesqueak.image.SqueakImageContext;
 import de.hpi.swa.trufflesqueak.util.LogUtils;
 
 final class SqueakTCPSocket extends SqueakSocket {
     private SocketChannel clientChannel;
     private ServerSocketChannel serverChannel;
 
-    protected SqueakTCPSocket() throws IOException {
-        super();
+    protected SqueakTCPSocket(final SqueakImageContext image, final long connectionSemaphoreIndex, final long readSemaphoreIndex, final long writeSemaphoreIndex) throws IOException {
+        super(image, connectionSemaphoreIndex, readSemaphoreIndex, writeSemaphoreIndex);
     }
 
-    private SqueakTCPSocket(final SocketChannel clientChannel) throws IOException {
-        super();
+    private SqueakTCPSocket(final SqueakImageContext image, final long connectionSemaphoreIndex, final long readSemaphoreIndex, final long writeSemaphoreIndex,
+                    final SocketChannel clientChannel) throws IOException {
+        super(image, connectionSemaphoreIndex, readSemaphoreIndex, writeSemaphoreIndex);
         this.clientChannel = clientChannel;
         this.clientChannel.configureBlocking(false);
-        this.clientChannel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        register(clientChannel, SelectionKey.OP_READ);
     }
 
     @Override
@@ -88,10 +89,6 @@ final class SqueakTCPSocket extends SqueakSocket {
     @Override
     @TruffleBoundary
     protected Status getStatus() throws IOException {
-        if (selector.isOpen()) {
-            selector.selectNow();
-        }
-
         final Status status = listening ? serverStatus() : clientStatus();
         LogUtils.SOCKET.finer(() -> this + " " + status);
         return status;
@@ -102,18 +99,15 @@ final class SqueakTCPSocket extends SqueakSocket {
             return Status.Connected;
         }
 
-        final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
-        while (keys.hasNext()) {
-            if (keys.next().isAcceptable()) {
-                clientChannel = serverChannel.accept();
-                clientChannel.configureBlocking(false);
-                clientChannel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE);
-                keys.remove();
-                return Status.Connected;
-            }
+        final SocketChannel accepted = serverChannel.accept();
+        if (accepted == null) {
+            /* Signal the connection semaphore once a client connects. */
+            armInterest(SelectionKey.OP_ACCEPT);
+            return Status.WaitingForConnection;
         }
-
-        return Status.WaitingForConnection;
+        clientChannel = accepted;
+        clientChannel.configureBlocking(false);
+        return Status.Connected;
     }
 
     private Status clientStatus() throws IOException {
@@ -121,7 +115,9 @@ final class SqueakTCPSocket extends SqueakSocket {
             return Status.Unconnected;
         }
 
-        maybeCompleteConnection();
+        if (clientChannel.isConnectionPending() && !clientChannel.finishConnect()) {
+            return Status.WaitingForConnection;
+        }
         final Socket socket = clientChannel.socket();
 
         if (socket.isInputShutdown()) {
@@ -143,19 +139,13 @@ final class SqueakTCPSocket extends SqueakSocket {
         return Status.Connected;
     }
 
-    private void maybeCompleteConnection() throws IOException {
-        while (clientChannel.isConnectionPending()) {
-            clientChannel.finishConnect();
-        }
-    }
-
     @Override
     @TruffleBoundary
     protected void connectTo(final String address, final long port) throws IOException {
         clientChannel = SocketChannel.open();
         clientChannel.configureBlocking(false);
-        clientChannel.register(selector, SelectionKey.OP_CONNECT | SelectionKey.OP_WRITE | SelectionKey.OP_READ);
         clientChannel.connect(new InetSocketAddress(address, (int) port));
+        register(clientChannel, SelectionKey.OP_CONNECT | SelectionKey.OP_READ);
     }
 
     @Override
@@ -165,15 +155,15 @@ final class SqueakTCPSocket extends SqueakSocket {
         serverChannel = ServerSocketChannel.open();
         serverChannel.configureBlocking(false);
         serverChannel.bind(new InetSocketAddress((int) port), (int) backlogSize);
-        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        register(serverChannel, SelectionKey.OP_ACCEPT);
     }
 
     @Override
     @TruffleBoundary
-    protected SqueakSocket accept() throws IOException {
+    protected SqueakSocket accept(final SqueakImageContext image, final long newConnectionSemaphoreIndex, final long newReadSemaphoreIndex, final long newWriteSemaphoreIndex)
+                    throws IOException {
         if (listening && clientChannel != null) {
-            clientChannel.keyFor(selector).cancel();
-            final SqueakSocket created = new SqueakTCPSocket(clientChannel);
+            final SqueakSocket created = new SqueakTCPSocket(image, newConnectionSemaphoreIndex, newReadSemaphoreIndex, newWriteSemaphoreIndex, clientChannel);
             clientChannel = null;
             return created;
         }
@@ -183,31 +173,29 @@ final class SqueakTCPSocket extends SqueakSocket {
 
     @Override
     @TruffleBoundary
-    protected boolean isSendDone() throws IOException {
-        selector.selectNow();
-        return selector.selectedKeys().stream().anyMatch(SelectionKey::isWritable);
+    protected boolean isSendDone() {
+        return isWritable();
     }
 
     @Override
     @TruffleBoundary
-    protected long sendDataTo(final ByteBuffer data, final SelectionKey key) throws IOException {
-        final SocketChannel channel = (SocketChannel) key.channel();
-        if (!channel.isConnected()) {
+    protected long sendDataTo(final ByteBuffer data) throws IOException {
+        if (clientChannel == null || !clientChannel.isConnected()) {
             throw new IOException("Client not connected");
         }
-        return channel.write(data);
+        return clientChannel.write(data);
     }
 
     @Override
     @TruffleBoundary
-    protected long receiveDataFrom(final SelectionKey key, final ByteBuffer data) throws IOException {
-        final SocketChannel channel = (SocketChannel) key.channel();
-        final long read = channel.read(data);
+    protected long receiveDataFrom(final ByteBuffer data) throws IOException {
+        if (clientChannel == null) {
+            throw new IOException("Client not connected");
+        }
+        final long read = clientChannel.read(data);
 
         if (read == -1) {
-            channel.shutdownInput();
-            key.cancel();
-            return 0;
+            clientChannel.shutdownInput();
         }
 
         return read;
@@ -216,12 +204,12 @@ final class SqueakTCPSocket extends SqueakSocket {
     @Override
     @TruffleBoundary
     protected void close() throws IOException {
-        super.close();
         if (serverChannel != null) {
             serverChannel.close();
         }
         if (clientChannel != null) {
             clientChannel.close();
         }
+        super.close();
     }
 }
@@ -15,13 +15,15 @@ import java.nio.channels.SelectionKey;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 
+import de.hpi.swa.trufflesqueak.image.SqueakImageContext;
+
 final class SqueakUDPSocket extends SqueakSocket {
 
     private final DatagramChannel channel;
 
     @TruffleBoundary
-    SqueakUDPSocket() throws IOException {
-        super();
+    SqueakUDPSocket(final SqueakImageContext image, final long connectionSemaphoreIndex, final long readSemaphoreIndex, final long writeSemaphoreIndex) throws IOException {
+        super(image, connectionSemaphoreIndex, readSemaphoreIndex, writeSemaphoreIndex);
         channel = DatagramChannel.open();
         channel.configureBlocking(false);
     }
@@ -89,8 +91,8 @@ final class SqueakUDPSocket extends SqueakSocket {
     @Override
     @TruffleBoundary
     protected void connectTo(final String address, final long port) throws IOException {
-        channel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE);
         channel.connect(new InetSocketAddress(address, (int) port));
+        register(channel, SelectionKey.OP_READ);
     }
 
     @Override
@@ -98,12 +100,12 @@ final class SqueakUDPSocket extends SqueakSocket {
     protected void listenOn(final long port, final long backlogSize) throws IOException {
         listening = true;
         channel.bind(new InetSocketAddress((int) port));
-        channel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        register(channel, SelectionKey.OP_READ);
     }
 
     @Override
     @TruffleBoundary
-    protected SqueakSocket accept() {
+    protected SqueakSocket accept(final SqueakImageContext image, final long newConnectionSemaphoreIndex, final long newReadSemaphoreIndex, final long newWriteSemaphoreIndex) {
         throw new UnsupportedOperationException("accept() on UDP socket");
     }
 
@@ -114,23 +116,22 @@ final class SqueakUDPSocket extends SqueakSocket {
 
     @Override
     @TruffleBoundary
-    protected long sendDataTo(final ByteBuffer data, final SelectionKey key) throws IOException {
-        final DatagramChannel to = (DatagramChannel) key.channel();
-        return to.send(data, to.getRemoteAddress());
+    protected long sendDataTo(final ByteBuffer data) throws IOException {
+        return channel.send(data, channel.getRemoteAddress());
     }
 
     @Override
     @TruffleBoundary
-    protected long receiveDataFrom(final SelectionKey key, final ByteBuffer data) throws IOException {
-        final DatagramChannel from = (DatagramChannel) key.channel();
-        from.receive(data);
-        return data.position();
+    protected long receiveDataFrom(final ByteBuffer data) throws IOException {
+        final int start = data.position();
+        channel.receive(data);
+        return data.position() - start;
     }
 
     @Override
     @TruffleBoundary
     protected void close() throws IOException {
-        super.close();
         channel.close();
+        super.close();
     }
 }
@@ -1172,8 +1172,9 @@ public final class ControlPrimitives extends AbstractPrimitiveFactoryHolder {
     protected abstract static class PrimRelinquishProcessorNode extends AbstractPrimitiveStackIncrementNode implements BinaryPrimitiveFallback {
         @Specialization
         protected final Object doRelinquish(final VirtualFrame frame, final Object receiver, final long timeMicroseconds,
-                        @Cached final CheckForInterruptsNode interruptNode) {
-            MiscUtils.sleep(timeMicroseconds / 1000);
+                        @Cached final CheckForInterruptsNode interruptNode,
+                        @CachedContext(SqueakLanguage.class) final SqueakImageContext image) {
+            image.interrupt.idle(timeMicroseconds / 1000);
             /*
              * Perform interrupt check (even if interrupt handler is not active), otherwise
              * idleProcess gets stuck.
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2017-2021 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.trufflesqueak.util;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+/**
+ * A sample of the garbage collection and heap statistics reported by the management beans of the
+ * JVM or SubstrateVM. Collectors are split into young (scavenging) and full collectors by name, and
+ * heap pools into eden, survivor and old pools. Beans are looked up and classified once, so that
+ * taking a sample only reads their counters. If no memory pools are available, which is the case on
+ * SubstrateVM, the whole heap is reported as old space.
+ */
+public final class GCStatistics {
+    private static GarbageCollectorMXBean[] youngCollectors;
+    private static GarbageCollectorMXBean[] fullCollectors;
+    private static MemoryPoolMXBean[] edenPools;
+    private static MemoryPoolMXBean[] youngPools;
+    private static MemoryPoolMXBean[] oldPools;
+
+    public final long youngCollectionCount;
+    public final long youngCollectionTime;
+    public final long fullCollectionCount;
+    public final long fullCollectionTime;
+    public final long heapSize;
+    public final long edenSize;
+    public final long youngSpaceSize;
+    public final long oldSpaceSize;
+    public final long oldSpaceFree;
+
+    private GCStatistics() {
+        youngCollectionCount = sumCollectionCounts(youngCollectors);
+        youngCollectionTime = sumCollectionTimes(youngCollectors);
+        fullCollectionCount = sumCollectionCounts(fullCollectors);
+        fullCollectionTime = sumCollectionTimes(fullCollectors);
+        heapSize = Runtime.getRuntime().totalMemory();
+        edenSize = sumCommitted(edenPools);
+        youngSpaceSize = sumCommitted(youngPools);
+        if (oldPools.length == 0) {
+            oldSpaceSize = heapSize - youngSpaceSize;
+            oldSpaceFree = Runtime.getRuntime().freeMemory();
+        } else {
+            long committed = 0;
+            long used = 0;
+            for (final MemoryPoolMXBean pool : oldPools) {
+                final MemoryUsage usage = pool.getUsage();
+                if (usage != null) {
+                    committed += usage.getCommitted();
+                    used += usage.getUsed();
+                }
+            }
+            oldSpaceSize = committed;
+            oldSpaceFree = committed - used;
+        }
+    }
+
+    @TruffleBoundary
+    public static GCStatistics sample() {
+        ensureInitialized();
+        return new GCStatistics();
+    }
+
+    /* Looked up lazily, so that SubstrateVM does not capture beans at image build time. */
+    private static synchronized void ensureInitialized() {
+        if (youngCollectors != null) {
+            return;
+        }
+        final List<GarbageCollectorMXBean> young = new ArrayList<>();
+        final List<GarbageCollectorMXBean> full = new ArrayList<>();
+        for (final GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (isYoungCollector(collector.getName())) {
+                young.add(collector);
+            } else {
+                full.add(collector);
+            }
+        }
+        final List<MemoryPoolMXBean> eden = new ArrayList<>();
+        final List<MemoryPoolMXBean> survivors = new ArrayList<>();
+        final List<MemoryPoolMXBean> old = new ArrayList<>();
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP) {
+                continue;
+            }
+            final String name = pool.getName().toLowerCase(Locale.ROOT);
+            if (name.contains("eden")) {
+                eden.add(pool);
+            } else if (name.contains("survivor")) {
+                survivors.add(pool);
+            } else {
+                old.add(pool);
+            }
+        }
+        edenPools = eden.toArray(new MemoryPoolMXBean[0]);
+        survivors.addAll(eden);
+        youngPools = survivors.toArray(new MemoryPoolMXBean[0]);
+        oldPools = old.toArray(new MemoryPoolMXBean[0]);
+        fullCollectors = full.toArray(new GarbageCollectorMXBean[0]);
+        youngCollectors = young.toArray(new GarbageCollectorMXBean[0]);
+    }
+
+    /*
+     * For example "PS Scavenge", "G1 Young Generation", "Copy", "ParNew", or "young generation
+     * scavenger" (SubstrateVM). Its full collector is called "complete scavenger". Collectors of
+     * single-generation GCs such as ZGC count as full collectors.
+     */
+    private static boolean isYoungCollector(final String collectorName) {
+        final String name = collectorName.toLowerCase(Locale.ROOT);
+        return !name.contains("complete") && (name.contains("young") || name.contains("scavenge") || name.equals("copy") || name.contains("parnew"));
+    }
+
+    private static long sumCollectionCounts(final GarbageCollectorMXBean[] collectors) {
+        long total = 0;
+        for (final GarbageCollectorMXBean collector : collectors) {
+            total += Math.max(collector.getCollectionCount(), 0);
+        }
+        return total;
+    }
+
+    private static long sumCollectionTimes(final GarbageCollectorMXBean[] collectors) {
+        long total = 0;
+        for (final GarbageCollectorMXBean collector : collectors) {
+            total += Math.max(collector.getCollectionTime(), 0);
+        }
+        return total;
+    }
+
+    private static long sumCommitted(final MemoryPoolMXBean[] pools) {
+        long total = 0;
+        for (final MemoryPoolMXBean pool : pools) {
+            final MemoryUsage usage = pool.getUsage();
+            if (usage != null) {
+                total += usage.getCommitted();
+            }
+        }
+        return total;
+    }
+}
@@ -15,6 +15,10 @@ public final class MethodCacheEntry {
     private NativeObject selector;
     private Object result;
 
+    /* Entries with the same selector are linked, so that they can be flushed selectively. */
+    private MethodCacheEntry previousWithSameSelector;
+    private MethodCacheEntry nextWithSameSelector;
+
     public MethodCacheEntry() {
     }
 
@@ -34,9 +38,27 @@ public final class MethodCacheEntry {
         result = object;
     }
 
+    public MethodCacheEntry getPreviousWithSameSelector() {
+        return previousWithSameSelector;
+    }
+
+    public void setPreviousWithSameSelector(final MethodCacheEntry entry) {
+        previousWithSameSelector = entry;
+    }
+
+    public MethodCacheEntry getNextWithSameSelector() {
+        return nextWithSameSelector;
+    }
+
+    public void setNextWithSameSelector(final MethodCacheEntry entry) {
+        nextWithSameSelector = entry;
+    }
+
     public void freeAndRelease() {
         selector = null; /* Mark it free. */
         result = null; /* Release the method. */
+        previousWithSameSelector = null;
+        nextWithSameSelector = null;
     }
 
     public MethodCacheEntry reuseFor(final ClassObject lookupClass, final NativeObject lookupSelector) {
@@ -14,7 +14,6 @@ import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.IOException;
 import java.lang.management.CompilationMXBean;
-import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -57,24 +56,6 @@ public final class MiscUtils {
         return String.format(format, args);
     }
 
-    @TruffleBoundary
-    public static long getCollectionCount() {
-        long totalCollectionCount = 0;
-        for (final GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
-            totalCollectionCount += Math.max(gcBean.getCollectionCount(), 0);
-        }
-        return totalCollectionCount;
-    }
-
-    @TruffleBoundary
-    public static long getCollectionTime() {
-        long totalCollectionTime = 0;
-        for (final GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
-            totalCollectionTime += Math.max(gcBean.getCollectionTime(), 0);
-        }
-        return totalCollectionTime;
-    }
-
     @TruffleBoundary
     public static String getGraalVMInformation() {
         final String graalVMVersion = System.getProperty("graalvm.version", "");
@@ -7,6 +7,14 @@ package de.hpi.swa.trufflesqueak.util;
 
 import java.util.AbstractCollection;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 
 import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
@@ -23,8 +31,11 @@ import de.hpi.swa.trufflesqueak.model.NilObject;
 
 public final class ObjectGraphUtils {
     private static final int ADDITIONAL_SPACE = 10_000;
+    /* Heaps smaller than this are traced faster on a single thread. */
+    private static final int PARALLEL_TRACING_THRESHOLD = 100_000;
 
     private static int lastSeenObjects = 500_000;
+    private static boolean forceParallelTracing;
 
     private ObjectGraphUtils() {
     }
@@ -33,6 +44,10 @@ public final class ObjectGraphUtils {
         return lastSeenObjects;
     }
 
+    private static boolean shouldTraceInParallel() {
+        return forceParallelTracing || lastSeenObjects >= PARALLEL_TRACING_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
     @TruffleBoundary
     public static AbstractCollection<AbstractSqueakObjectWithClassAndHash> allInstances(final SqueakImageContext image) {
         final ArrayDeque<AbstractSqueakObjectWithClassAndHash> seen = new ArrayDeque<>(lastSeenObjects + ADDITIONAL_SPACE);
@@ -58,10 +73,44 @@ public final class ObjectGraphUtils {
                 pending.tracePointers(currentObject);
             }
         }
+        if (image.options.instanceRegistry) {
+            forgetBecomeForwardedInstances(fromPointers, toPointers);
+        }
+    }
+
+    /* Forwarded objects are garbage now, so they must no longer be answered by instance registries. */
+    private static void forgetBecomeForwardedInstances(final Object[] fromPointers, final Object[] toPointers) {
+        final Set<Object> forwarded = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Set<ClassObject> classes = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < fromPointers.length; i++) {
+            final Object from = fromPointers[i];
+            if (from != toPointers[i] && from instanceof AbstractSqueakObjectWithClassAndHash) {
+                final ClassObject classObject = ((AbstractSqueakObjectWithClassAndHash) from).getSqueakClass();
+                if (classObject != null && classObject.hasInstanceRegistry()) {
+                    forwarded.add(from);
+                    classes.add(classObject);
+                }
+            }
+        }
+        for (final ClassObject classObject : classes) {
+            classObject.getInstanceRegistry().removeAll(forwarded);
+        }
     }
 
     @TruffleBoundary
     public static Object[] allInstancesOf(final SqueakImageContext image, final ClassObject classObj) {
+        if (classObj.hasInstanceRegistry()) {
+            return classObj.getInstanceRegistry().allInstances();
+        }
+        if (shouldTraceInParallel()) {
+            final ConcurrentLinkedQueue<AbstractSqueakObjectWithClassAndHash> result = new ConcurrentLinkedQueue<>();
+            ParallelTraceTask.trace(image, object -> {
+                if (classObj == object.getSqueakClass()) {
+                    result.add(object);
+                }
+            });
+            return result.toArray();
+        }
         final ArrayDeque<AbstractSqueakObjectWithClassAndHash> result = new ArrayDeque<>();
         final ObjectTracer pending = new ObjectTracer(image);
         AbstractSqueakObjectWithClassAndHash currentObject;
@@ -78,6 +127,11 @@ public final class ObjectGraphUtils {
 
     @TruffleBoundary
     public static AbstractSqueakObject someInstanceOf(final SqueakImageContext image, final ClassObject classObj) {
+        if (classObj.hasInstanceRegistry()) {
+            final AbstractSqueakObject instance = classObj.getInstanceRegistry().someInstance();
+            return instance != null ? instance : NilObject.SINGLETON;
+        }
+        /* Traced sequentially, so that the first instance found does not depend on scheduling. */
         final ObjectTracer pending = new ObjectTracer(image);
         AbstractSqueakObjectWithClassAndHash currentObject;
         while ((currentObject = pending.getNextPending()) != null) {
@@ -91,14 +145,76 @@ public final class ObjectGraphUtils {
         return NilObject.SINGLETON;
     }
 
+    /**
+     * Traces the object graph with the workers of the common {@link ForkJoinPool}. Objects are
+     * claimed with {@link AbstractSqueakObjectWithClassAndHash#tryToMarkAtomically(boolean)}, so
+     * each reachable object is visited exactly once, but in no particular order. Only suitable for
+     * read-only walks that do not depend on the order of visits.
+     */
+    private static final class ParallelTraceTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        /* Pending objects above which a task hands half of its work to a new task. */
+        private static final int SPLIT_THRESHOLD = 256;
+
+        private final transient ObjectTracer pending;
+        private final transient Consumer<AbstractSqueakObjectWithClassAndHash> visitor;
+
+        private ParallelTraceTask(final ObjectTracer pending, final Consumer<AbstractSqueakObjectWithClassAndHash> visitor) {
+            this.pending = pending;
+            this.visitor = visitor;
+        }
+
+        private static void trace(final SqueakImageContext image, final Consumer<AbstractSqueakObjectWithClassAndHash> visitor) {
+            /* Roots are collected on the current thread, Truffle frames cannot be walked elsewhere. */
+            final ObjectTracer roots = new ObjectTracer(image);
+            ForkJoinPool.commonPool().invoke(new ParallelTraceTask(roots, visitor));
+        }
+
+        @Override
+        protected void compute() {
+            final ArrayList<ParallelTraceTask> forked = new ArrayList<>();
+            final boolean currentMarkingFlag = pending.getCurrentMarkingFlag();
+            AbstractSqueakObjectWithClassAndHash currentObject;
+            while ((currentObject = pending.getNextPending()) != null) {
+                if (currentObject.tryToMarkAtomically(currentMarkingFlag)) {
+                    visitor.accept(currentObject);
+                    pending.tracePointers(currentObject);
+                    if (pending.getPendingSize() > SPLIT_THRESHOLD) {
+                        final ParallelTraceTask task = new ParallelTraceTask(pending.split(), visitor);
+                        task.fork();
+                        forked.add(task);
+                    }
+                }
+            }
+            for (final ParallelTraceTask task : forked) {
+                task.join();
+            }
+        }
+    }
+
+    /*
+     * TESTING
+     */
+
+    public static void setForceParallelTracing(final boolean value) {
+        CompilerAsserts.neverPartOfCompilation("Forcing parallel tracing only supported for testing purposes");
+        forceParallelTracing = value;
+    }
+
     public static final class ObjectTracer {
         /* Power of two, large enough to avoid resizing. */
         private static final int PENDING_INITIAL_SIZE = 1 << 17;
 
         private final boolean currentMarkingFlag;
-        private final ArrayDeque<AbstractSqueakObjectWithClassAndHash> deque = new ArrayDeque<>(PENDING_INITIAL_SIZE);
+        private final ArrayDeque<AbstractSqueakObjectWithClassAndHash> deque;
+
+        private ObjectTracer(final boolean currentMarkingFlag, final int initialSize) {
+            this.currentMarkingFlag = currentMarkingFlag;
+            deque = new ArrayDeque<>(initialSize);
+        }
 
         private ObjectTracer(final SqueakImageContext image) {
+            deque = new ArrayDeque<>(PENDING_INITIAL_SIZE);
             // Flip the marking flag
             currentMarkingFlag = image.toggleCurrentMarkingFlag();
             // Add roots
@@ -146,6 +262,20 @@ public final class ObjectGraphUtils {
             return deque.pollFirst();
         }
 
+        private int getPendingSize() {
+            return deque.size();
+        }
+
+        /** Moves half of the pending objects into a new tracer. */
+        private ObjectTracer split() {
+            final int count = deque.size() / 2;
+            final ObjectTracer other = new ObjectTracer(currentMarkingFlag, Math.max(count * 2, 16));
+            for (int i = 0; i < count; i++) {
+                other.deque.add(deque.pollLast());
+            }
+            return other;
+        }
+
         private void tracePointers(final AbstractSqueakObjectWithClassAndHash object) {
             addIfUnmarked(object.getSqueakClass());
             object.tracePointers(this);
@@ -19,6 +19,12 @@ public final class UnsafeUtils {
     private UnsafeUtils() {
     }
 
+    /** Copies bytes into an int array in native byte order, {@code intsByteOffset} is in bytes. */
+    public static void copyBytesToInts(final byte[] bytes, final int bytesOffset, final int[] ints, final long intsByteOffset, final int numBytes) {
+        assert 0 <= bytesOffset && bytesOffset + numBytes <= bytes.length && 0 <= intsByteOffset && intsByteOffset + numBytes <= (long) ints.length * Integer.BYTES;
+        UNSAFE.copyMemory(bytes, Unsafe.ARRAY_BYTE_BASE_OFFSET + bytesOffset, ints, Unsafe.ARRAY_INT_BASE_OFFSET + intsByteOffset, numBytes);
+    }
+
     public static long getAddress(final Class<?> javaClass, final String fieldName) {
         try {
             return UNSAFE.objectFieldOffset(javaClass.getField(fieldName));
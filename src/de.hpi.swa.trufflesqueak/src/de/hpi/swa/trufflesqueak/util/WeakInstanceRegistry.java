@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2017-2021 Software Architecture Group, Hasso Plattner Institute
+ *
+ * Licensed under the MIT License.
+ */
+package de.hpi.swa.trufflesqueak.util;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+
+import de.hpi.swa.trufflesqueak.model.AbstractSqueakObjectWithClassAndHash;
+import de.hpi.swa.trufflesqueak.model.ClassObject;
+
+/**
+ * Weakly references the instances of a single class, so that allInstances and someInstance can
+ * be answered without tracing the entire object graph. Entries are only candidates: instances that
+ * have been collected or that changed their class in the meantime are dropped whenever the registry
+ * is compacted.
+ */
+public final class WeakInstanceRegistry {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final ClassObject classObject;
+    private WeakReference<?>[] instances = new WeakReference<?>[INITIAL_CAPACITY];
+    private int size;
+    /* Set when an existing object joins the registry, which may register it a second time. */
+    private boolean mayContainDuplicates;
+
+    public WeakInstanceRegistry(final ClassObject classObject) {
+        this.classObject = classObject;
+    }
+
+    @TruffleBoundary
+    public void add(final AbstractSqueakObjectWithClassAndHash object) {
+        if (size == instances.length) {
+            compact(null);
+            if (size > instances.length / 2) {
+                instances = Arrays.copyOf(instances, instances.length * 2);
+            }
+        }
+        instances[size++] = new WeakReference<>(object);
+    }
+
+    @TruffleBoundary
+    public void addExisting(final AbstractSqueakObjectWithClassAndHash object) {
+        mayContainDuplicates = true;
+        add(object);
+    }
+
+    @TruffleBoundary
+    public void removeAll(final Set<Object> objects) {
+        compact(objects);
+    }
+
+    @TruffleBoundary
+    public Object[] allInstances() {
+        compact(null);
+        final Object[] result = new Object[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            final Object instance = instances[i].get();
+            if (instance != null) {
+                result[count++] = instance;
+            }
+        }
+        return count == size ? result : Arrays.copyOf(result, count);
+    }
+
+    @TruffleBoundary
+    public AbstractSqueakObjectWithClassAndHash someInstance() {
+        for (int i = 0; i < size; i++) {
+            final AbstractSqueakObjectWithClassAndHash instance = get(i);
+            if (instance != null && instance.getSqueakClass() == classObject) {
+                return instance;
+            }
+        }
+        return null;
+    }
+
+    private AbstractSqueakObjectWithClassAndHash get(final int index) {
+        return (AbstractSqueakObjectWithClassAndHash) instances[index].get();
+    }
+
+    /* Drops collected instances, instances of other classes, duplicates, and the given objects. */
+    private void compact(final Set<Object> removals) {
+        final Set<Object> seen = mayContainDuplicates ? Collections.newSetFromMap(new IdentityHashMap<>(size)) : null;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            final AbstractSqueakObjectWithClassAndHash instance = get(i);
+            if (instance != null && instance.getSqueakClass() == classObject && (removals == null || !removals.contains(instance)) && (seen == null || seen.add(instance))) {
+                instances[count++] = instances[i];
+            }
+        }
+        for (int i = count; i < size; i++) {
+            instances[i] = null;
+        }
+        size = count;
+        mayContainDuplicates = false;
+    }
+}